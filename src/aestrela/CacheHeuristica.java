@@ -0,0 +1,147 @@
+package aestrela;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache dos valores da heuristica da arvore geradora minima, indexado pelo
+ * conjunto de cidades nao visitadas de cada {@link Estado}. A heuristica so
+ * depende desse conjunto, entao estados que chegaram as mesmas cidades por
+ * caminhos diferentes, ou que estao em cidades atuais diferentes, reaproveitam o
+ * mesmo valor.
+ * <p>
+ * O cache tem uma capacidade maxima de entradas, e ao atingi-la remove a
+ * entrada usada ha mais tempo (LRU). As quantidades de acertos e faltas sao
+ * contadas para avaliar o aproveitamento do cache.
+ * </p>
+ * <p>
+ * Os valores so valem para um grafo, entao o cache e esvaziado sempre que for
+ * usado com um grafo diferente.
+ * </p>
+ */
+public class CacheHeuristica {
+
+	/**
+	 * Capacidade usada quando nenhuma e informada.
+	 */
+	public static final int CAPACIDADE_PADRAO = 1 << 20;
+
+	private final int capacidade;
+	private final LinkedHashMap<Long, Double> valores;
+	private Object grafo;
+	private long acertos;
+	private long faltas;
+
+	public CacheHeuristica() {
+		this(CAPACIDADE_PADRAO);
+	}
+
+	/**
+	 * Cria um cache vazio.
+	 * 
+	 * @param capacidade
+	 *            quantidade maxima de entradas.
+	 */
+	public CacheHeuristica(final int capacidade) {
+		if (capacidade < 1)
+			throw new IllegalArgumentException("Capacidade deve ser positiva: " + capacidade);
+		this.capacidade = capacidade;
+		// ordem de acesso, para que a entrada mais antiga seja a usada ha mais tempo
+		this.valores = new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Double> maisAntiga) {
+				return size() > capacidade;
+			}
+		};
+	}
+
+	/**
+	 * Associa o cache a um grafo, esvaziando-o caso estivesse associado a outro.
+	 * 
+	 * @param grafo
+	 *            grafo cujos valores serao guardados.
+	 */
+	void associar(Object grafo) {
+		if (this.grafo != grafo) {
+			valores.clear();
+			this.grafo = grafo;
+		}
+	}
+
+	/**
+	 * Busca o valor da heuristica de um conjunto de cidades nao visitadas.
+	 * 
+	 * @param naoVisitadas
+	 *            bits dos indexes das cidades nao visitadas.
+	 * @return valor guardado, ou {@code null} caso nao esteja no cache.
+	 */
+	Double buscar(long naoVisitadas) {
+		Double valor = valores.get(naoVisitadas);
+		if (valor == null)
+			faltas++;
+		else
+			acertos++;
+		return valor;
+	}
+
+	/**
+	 * Guarda o valor da heuristica de um conjunto de cidades nao visitadas.
+	 * 
+	 * @param naoVisitadas
+	 *            bits dos indexes das cidades nao visitadas.
+	 * @param valor
+	 *            valor da heuristica.
+	 */
+	void guardar(long naoVisitadas, double valor) {
+		valores.put(naoVisitadas, valor);
+	}
+
+	/**
+	 * Soma os acertos e faltas de outro cache aos deste, como os dos caches de cada
+	 * thread de uma busca paralela.
+	 * 
+	 * @param outro
+	 *            cache cujos contadores serao somados.
+	 */
+	void somarContadores(CacheHeuristica outro) {
+		acertos += outro.acertos;
+		faltas += outro.faltas;
+	}
+
+	public int getCapacidade() {
+		return capacidade;
+	}
+
+	public int tamanho() {
+		return valores.size();
+	}
+
+	public long getAcertos() {
+		return acertos;
+	}
+
+	public long getFaltas() {
+		return faltas;
+	}
+
+	/**
+	 * Retorna a fracao das buscas que encontraram o valor no cache.
+	 * 
+	 * @return taxa de acertos, entre 0 e 1.
+	 */
+	public double taxaAcertos() {
+		long total = acertos + faltas;
+		return total == 0 ? 0 : (double) acertos / total;
+	}
+
+	/**
+	 * Esvazia o cache e zera os contadores.
+	 */
+	public void limpar() {
+		valores.clear();
+		acertos = 0;
+		faltas = 0;
+	}
+}
@@ -1,29 +1,174 @@
 package aestrela;
 
 import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Estado da busca A*, representado de forma compacta pelo conjunto de cidades
+ * visitadas em um {@code long}, em que o bit i indica se a cidade de index i
+ * no grafo foi visitada, pela cidade atual e por um ponteiro para o estado
+ * anterior do melhor caminho conhecido. As listas de cidades visitadas e não
+ * visitadas são construídas somente quando pedidas, então cada estado ocupa
+ * um tamanho fixo, independente da quantidade de cidades.
+ * <p>
+ * Dois estados são iguais quando visitaram o mesmo conjunto de cidades e estão
+ * na mesma cidade, independente da ordem em que as cidades foram visitadas,
+ * pois o custo restante a partir deles é o mesmo.
+ * </p>
+ * <p>
+ * A cidade inicial é a de index 0, e o estado final é o que visitou todas as
+ * cidades e voltou a ela.
+ * </p>
+ */
 public class Estado {
-	
-	public ArrayList<Integer> cidadesVisitadas;
-	
-	public ArrayList<Integer> cidadesNaoVisitadas;
-	
-	public Integer peso;
-	
-	public Estado(ArrayList<Integer> cidadesVisitadas, ArrayList<Integer> cidades) {
-		cidadesNaoVisitadas = new ArrayList<Integer>();
-		this.cidadesVisitadas = cidadesVisitadas;
-
-		//Constroi a lista de cidades n�o visitadas a partir do que n�o esta presente na lista de cidades visitadas
-		for (int i = 0 ; i < cidades.size() ; i++) {
-			if (!cidadesVisitadas.contains((cidades.get(i)))) {
-				cidadesNaoVisitadas.add(cidades.get(i));
-			}
-		}
-
-		//Após a construção da lista final, adiciona a cidade inicial a lista
-		if (cidadesNaoVisitadas.isEmpty() && cidadesVisitadas.get(cidadesVisitadas.size()-1) != cidadesVisitadas.get(0)) {
-			cidadesNaoVisitadas.add(cidadesVisitadas.get(0));
-		}
+
+	/**
+	 * Quantidade máxima de cidades representável no conjunto de visitadas.
+	 */
+	public static final int MAXIMO_CIDADES = Long.SIZE;
+
+	private final List<Integer> cidades;
+
+	// Identidade do estado: conjunto de cidades visitadas e cidade atual
+	final long visitadas;
+	final int atual;
+
+	// Estado anterior do melhor caminho ate este estado
+	Estado pai;
+
+	// Custo do caminho ate o estado, valor f e identificador na lista aberta, ou
+	// ordem de criacao no SMA*
+	double valorG;
+	double valorF;
+	int posicao = -1;
+
+	// Valor da heuristica, guardado pelo ARA* para recalcular o valor f quando o
+	// peso muda, e pelo HDA* quando o valor g melhora
+	double valorH;
+
+	// Cidades dos filhos na memoria e valor f dos filhos esquecidos, usados pelo
+	// SMA*
+	long filhos;
+	double[] esquecidos;
+
+	/**
+	 * Cria o estado inicial, que visitou somente a cidade inicial.
+	 * 
+	 * @param cidades
+	 *            cidades do grafo, na ordem de seus indexes.
+	 */
+	public Estado(List<Integer> cidades) {
+		if (cidades.size() > MAXIMO_CIDADES)
+			throw new IllegalArgumentException("O estado suporta no máximo " + MAXIMO_CIDADES + " cidades");
+		this.cidades = cidades;
+		this.visitadas = 1L;
+		this.atual = 0;
+	}
+
+	/**
+	 * Cria o estado obtido ao sair de um estado e ir para uma cidade.
+	 * 
+	 * @param pai
+	 *            estado anterior.
+	 * @param cidade
+	 *            index da cidade visitada.
+	 */
+	public Estado(Estado pai, int cidade) {
+		this.cidades = pai.cidades;
+		this.visitadas = pai.visitadas | (1L << cidade);
+		this.atual = cidade;
+		this.pai = pai;
+	}
+
+	/**
+	 * Conjunto das cidades do grafo, com os bits de index 0 a n - 1 ligados.
+	 */
+	private long todas() {
+		return cidades.size() == MAXIMO_CIDADES ? -1L : (1L << cidades.size()) - 1;
+	}
+
+	/**
+	 * Verifica se todas as cidades foram visitadas e o caminho voltou a cidade
+	 * inicial.
+	 * 
+	 * @return true se o estado for final.
+	 */
+	public boolean isFinal() {
+		return visitadas == todas() && atual == 0;
+	}
+
+	/**
+	 * Retorna o conjunto das cidades que ainda precisam ser visitadas. Após visitar
+	 * todas as cidades, contém somente a cidade inicial, até que o caminho volte a
+	 * ela.
+	 * 
+	 * @return bits dos indexes das cidades não visitadas.
+	 */
+	public long naoVisitadas() {
+		long restantes = todas() & ~visitadas;
+		if (restantes == 0 && atual != 0)
+			return 1L;
+		return restantes;
+	}
+
+	/**
+	 * Index da cidade atual no grafo.
+	 * 
+	 * @return index da cidade atual.
+	 */
+	public int getAtual() {
+		return atual;
+	}
+
+	/**
+	 * Custo do caminho até este estado. No estado final retornado pela busca, é o
+	 * custo do circuito.
+	 * 
+	 * @return custo do caminho.
+	 */
+	public double getValorG() {
+		return valorG;
+	}
+
+	/**
+	 * Reconstrói o caminho percorrido até este estado pelos estados anteriores.
+	 * 
+	 * @return cidades visitadas, em ordem.
+	 */
+	public ArrayList<Integer> getCidadesVisitadas() {
+		ArrayList<Integer> caminho = new ArrayList<Integer>();
+		for (Estado e = this; e != null; e = e.pai)
+			caminho.add(cidades.get(e.atual));
+		for (int i = 0, j = caminho.size() - 1; i < j; i++, j--)
+			caminho.set(i, caminho.set(j, caminho.get(i)));
+		return caminho;
+	}
+
+	/**
+	 * Constrói a lista das cidades que ainda precisam ser visitadas.
+	 * 
+	 * @return cidades não visitadas, em ordem de index.
+	 * @see #naoVisitadas()
+	 */
+	public ArrayList<Integer> getCidadesNaoVisitadas() {
+		ArrayList<Integer> restantes = new ArrayList<Integer>();
+		for (long b = naoVisitadas(); b != 0; b &= b - 1)
+			restantes.add(cidades.get(Long.numberOfTrailingZeros(b)));
+		return restantes;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(visitadas) + atual;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Estado))
+			return false;
+		Estado outro = (Estado) obj;
+		return visitadas == outro.visitadas && atual == outro.atual;
 	}
 }
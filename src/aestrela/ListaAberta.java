@@ -0,0 +1,96 @@
+package aestrela;
+
+import java.util.ArrayList;
+
+import utils.HeapIndexado;
+
+/**
+ * Lista de estados abertos da busca A*, implementada sobre um
+ * {@link HeapIndexado} de mínimo. Cada estado recebe um identificador ao ser
+ * inserido pela primeira vez, guardado na sua posição, e o heap guarda o seu
+ * valor f em um vetor primitivo. Assim a remoção do estado de menor valor f e a
+ * diminuição do valor f de um estado já aberto custam O(log n), e verificar se
+ * um estado está aberto custa O(1).
+ * <p>
+ * Em caso de empate no valor f tem prioridade o estado de maior valor g, que
+ * está mais próximo de completar o circuito.
+ * </p>
+ */
+class ListaAberta {
+	// Estados que já passaram pela lista, indexados pelo identificador
+	private final ArrayList<Estado> estados = new ArrayList<Estado>();
+	private final HeapIndexado heap = new HeapIndexado(16) {
+		@Override
+		protected boolean menor(int a, int b) {
+			if (chave(a) != chave(b))
+				return chave(a) < chave(b);
+			return estados.get(a).valorG > estados.get(b).valorG;
+		}
+	};
+
+	public boolean vazia() {
+		return heap.vazio();
+	}
+
+	public int tamanho() {
+		return heap.tamanho();
+	}
+
+	public boolean contem(Estado estado) {
+		return registrado(estado) && heap.contem(estado.posicao);
+	}
+
+	/**
+	 * Retorna o estado guardado em uma posição do heap, permitindo percorrer todos
+	 * os estados abertos. A posição 0 é a do estado de menor valor f, e as demais
+	 * não seguem nenhuma ordem.
+	 * 
+	 * @param i
+	 *            posição, de 0 a {@link #tamanho()} - 1.
+	 * @return estado na posição.
+	 */
+	public Estado estado(int i) {
+		return estados.get(heap.id(i));
+	}
+
+	/**
+	 * Adiciona um estado, usando o seu valor f como prioridade.
+	 * 
+	 * @param estado
+	 *            estado que ainda não está na lista.
+	 */
+	public void inserir(Estado estado) {
+		if (!registrado(estado)) {
+			estado.posicao = estados.size();
+			estados.add(estado);
+		}
+		heap.inserir(estado.posicao, estado.valorF);
+	}
+
+	/**
+	 * Remove o estado de menor valor f.
+	 * 
+	 * @return estado removido.
+	 */
+	public Estado removerMinimo() {
+		return estados.get(heap.removerMinimo());
+	}
+
+	/**
+	 * Reposiciona um estado da lista cujo valor f diminuiu.
+	 * 
+	 * @param estado
+	 *            estado com o novo valor f.
+	 */
+	public void diminuirChave(Estado estado) {
+		heap.diminuirChave(estado.posicao, estado.valorF);
+	}
+
+	/**
+	 * Verifica se o identificador guardado no estado é desta lista, pois o estado
+	 * pode ter passado por outra.
+	 */
+	private boolean registrado(Estado estado) {
+		return estado.posicao >= 0 && estado.posicao < estados.size() && estados.get(estado.posicao) == estado;
+	}
+}
@@ -1,150 +1,933 @@
 package aestrela;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import utils.Grafo;
+import utils.GrafoCSR;
+import utils.LimiteHeldKarp;
 
 public class PCVAEstrela {
 
-	public static Estado aEstrela(Grafo<Integer> g) {
-		ArrayList<Integer> inicio = new ArrayList<Integer>();
-		ArrayList<Integer> cidades = new ArrayList<Integer>();
-		cidades = g.getVertices();
-		inicio.add(cidades.get(0));
-		Estado estadoInicial = new Estado(inicio, cidades);
+	/**
+	 * Heuristicas disponiveis para estimar o custo restante de um estado.
+	 */
+	public enum Heuristica {
+		/**
+		 * Custo da arvore geradora minima das cidades nao visitadas e da inicial.
+		 */
+		ARVORE_GERADORA_MINIMA,
+		/**
+		 * Limite de Held-Karp do caminho que sai da cidade atual, passa pelas cidades
+		 * nao visitadas e volta a inicial.
+		 * 
+		 * @see LimiteHeldKarp
+		 */
+		HELD_KARP
+	}
 
-		ArrayList<Estado> estadosAbertos = new ArrayList<Estado>();
-		estadosAbertos.add(estadoInicial);
+	/**
+	 * Algoritmos de busca disponiveis, todos guiados pela mesma heuristica.
+	 */
+	public enum Modo {
+		/**
+		 * A*, que guarda todos os estados gerados.
+		 */
+		A_ESTRELA,
+		/**
+		 * IDA*, busca em profundidade limitada pelo valor f, repetida com o limite
+		 * aumentado para o menor valor f que o ultrapassou. Guarda somente os estados
+		 * do caminho atual.
+		 */
+		IDA_ESTRELA,
+		/**
+		 * SMA*, A* que ao atingir o limite de estados na memoria esquece a folha aberta
+		 * de maior valor f, guardando esse valor no pai para que ele seja expandido
+		 * novamente quando necessario.
+		 */
+		SMA_ESTRELA,
+		/**
+		 * HDA*, A* paralelo em que cada estado pertence a uma thread, escolhida pelo
+		 * hash do estado, que guarda a sua propria lista aberta. Usa uma thread por
+		 * processador.
+		 * 
+		 * @see PCVAEstrela#hdaEstrela(Grafo, Heuristica, int, CacheHeuristica)
+		 */
+		HDA_ESTRELA
+	}
 
-		HashMap<Estado, Double> valoresG = new HashMap<Estado, Double>();
-		valoresG.put(estadoInicial, 0.0);
+	/**
+	 * Recebe os circuitos encontrados pela busca {@linkplain #araEstrela ARA*}.
+	 */
+	public interface OuvinteCircuito {
+		/**
+		 * Chamado ao final de cada iteracao do ARA* em que o circuito ou o seu limite
+		 * melhorou.
+		 * 
+		 * @param circuito
+		 *            cidades do circuito, em ordem, comecando e terminando na cidade
+		 *            inicial.
+		 * @param custo
+		 *            custo do circuito.
+		 * @param limite
+		 *            fator de subotimalidade provado: o custo do circuito e no maximo
+		 *            {@code limite} vezes o custo otimo.
+		 */
+		void circuitoEncontrado(List<Integer> circuito, double custo, double limite);
+	}
 
-		HashMap<Estado, Double> valoresF = new HashMap<Estado, Double>();
-		valoresF.put(estadoInicial,
-				heuristica(cidades.get(0), new ArrayList<Integer>(), estadoInicial.cidadesNaoVisitadas, g));
+	/**
+	 * Limite de estados na memoria do SMA* usado quando nenhum e informado.
+	 */
+	public static final int LIMITE_ESTADOS_PADRAO = 1 << 20;
 
-		while (!estadosAbertos.isEmpty()) {
+	// Iteracoes do subgradiente do limite de Held-Karp em cada estado
+	private static final int ITERACOES_HELD_KARP = 20;
 
-			// Verifica todos os estados abertos para achar aquele com o melhor valor de f
-			double valorEstadoAtual = valoresF.get(estadosAbertos.get(0));
-			Estado estadoAtual = estadosAbertos.get(0);
-			for (int i = 0; i < estadosAbertos.size(); i++) {
-				if (valoresF.get(estadosAbertos.get(i)) < valorEstadoAtual) {
-					estadoAtual = estadosAbertos.get(i);
-					valorEstadoAtual = valoresF.get(estadosAbertos.get(i));
-				}
-			}
+	// Chaves do Prim da heuristica, reaproveitadas por cada thread para que a
+	// heuristica nao aloque memoria
+	private static final ThreadLocal<double[]> CHAVES = new ThreadLocal<double[]>();
+
+	public static Estado aEstrela(Grafo<Integer> grafo) {
+		return aEstrela(grafo, Heuristica.ARVORE_GERADORA_MINIMA);
+	}
+
+	public static Estado aEstrela(Grafo<Integer> grafo, Heuristica tipo) {
+		return aEstrela(grafo, tipo, new CacheHeuristica());
+	}
+
+	public static Estado aEstrela(Grafo<Integer> grafo, Heuristica tipo, CacheHeuristica cache) {
+		return aEstrela(grafo, tipo, Modo.A_ESTRELA, LIMITE_ESTADOS_PADRAO, cache);
+	}
+
+	public static Estado aEstrela(Grafo<Integer> grafo, Heuristica tipo, Modo modo) {
+		return aEstrela(grafo, tipo, modo, LIMITE_ESTADOS_PADRAO, new CacheHeuristica());
+	}
+
+	/**
+	 * Executa a busca A* pelo circuito de menor custo, partindo da primeira cidade
+	 * do grafo.
+	 * 
+	 * @param grafo
+	 *            grafo com no maximo {@link Estado#MAXIMO_CIDADES} cidades.
+	 * @param tipo
+	 *            heuristica usada para estimar o custo restante.
+	 * @param modo
+	 *            algoritmo de busca.
+	 * @param limiteEstados
+	 *            quantidade maxima de estados na memoria do
+	 *            {@linkplain Modo#SMA_ESTRELA SMA*}, que deve ser maior que a
+	 *            quantidade de cidades; ignorado pelos demais modos.
+	 * @param cache
+	 *            cache dos valores da heuristica da arvore geradora minima, que ao
+	 *            final da busca contem os seus acertos e faltas.
+	 * @return estado final, cujo caminho e o circuito de menor custo, ou
+	 *         {@code null} caso nao exista circuito.
+	 */
+	public static Estado aEstrela(Grafo<Integer> grafo, Heuristica tipo, Modo modo, int limiteEstados,
+			CacheHeuristica cache) {
+		// O grafo so e lido durante a busca, entao e usada a sua representacao CSR
+		GrafoCSR<Integer> g = grafo.congelar();
+		cache.associar(g);
+		double[] distancias = g.matrizDistancias();
+		switch (modo) {
+		case IDA_ESTRELA:
+			return idaEstrela(g, tipo, distancias, cache);
+		case SMA_ESTRELA:
+			if (limiteEstados <= g.size())
+				throw new IllegalArgumentException(
+						"O limite de estados deve ser maior que a quantidade de cidades: " + limiteEstados);
+			return smaEstrela(g, tipo, distancias, cache, limiteEstados);
+		case HDA_ESTRELA:
+			return new BuscaDistribuida(g, tipo, distancias, Runtime.getRuntime().availableProcessors(), cache)
+					.executar();
+		default:
+			return buscaAEstrela(g, tipo, distancias, cache);
+		}
+	}
+
+	private static Estado buscaAEstrela(GrafoCSR<Integer> g, Heuristica tipo, double[] distancias,
+			CacheHeuristica cache) {
+		Estado estadoInicial = new Estado(g.getVertices());
+
+		// Estados abertos ordenados pelo valor f, e todos os estados ja gerados, para
+		// que caminhos diferentes ate o mesmo estado sejam unidos. Os estados gerados
+		// que nao estao abertos formam o conjunto de estados fechados
+		ListaAberta estadosAbertos = new ListaAberta();
+		HashMap<Estado, Estado> estadosGerados = new HashMap<Estado, Estado>();
+
+		estadoInicial.valorG = 0;
+		estadoInicial.valorF = estimativa(tipo, estadoInicial, g, distancias, cache);
+		estadosAbertos.inserir(estadoInicial);
+		estadosGerados.put(estadoInicial, estadoInicial);
+
+		while (!estadosAbertos.vazia()) {
+
+			// Remove o estado aberto com o melhor valor de f
+			Estado estadoAtual = estadosAbertos.removerMinimo();
 
 			// Caso tenha chego no estado final, retorna o caminho
-			if (estadoAtual.cidadesNaoVisitadas.isEmpty()) {
+			if (estadoAtual.isFinal()) {
 				return estadoAtual;
 			}
 
-			// Ap�s chegar ao estado com menor f, remove-o da lista de estados abertos
-			estadosAbertos.remove(estadoAtual);
-
-			// Descobre os novos estados ap�s expandir o estado anterior
-			LinkedHashMap<Estado, Double> vizinhos = getVizinhos(estadoAtual, cidades, g);
+			// Descobre os novos estados apos expandir o estado anterior
+			LinkedHashMap<Estado, Double> vizinhos = getVizinhos(estadoAtual, g, distancias);
 			for (Map.Entry<Estado, Double> entrada : vizinhos.entrySet()) {
+				Estado vizinho = entrada.getKey();
+
+				// Calcula o valor g para o novo estado
+				double valorG = estadoAtual.valorG + entrada.getValue();
 
-				// Caso ele seja novo, o adiciona aos estados abertos
-				if (!estadosAbertos.contains(entrada.getKey())) {
-					estadosAbertos.add(entrada.getKey());
+				Estado conhecido = estadosGerados.get(vizinho);
+				if (conhecido == null) {
+					// Caso ele seja novo, o adiciona aos estados abertos
+					vizinho.valorG = valorG;
+					vizinho.valorF = valorG + estimativa(tipo, vizinho, g, distancias, cache);
+					estadosGerados.put(vizinho, vizinho);
+					estadosAbertos.inserir(vizinho);
+				} else if (valorG < conhecido.valorG) {
+					// Caso o valor g calculado seja otimo para esse estado, troca o seu caminho e
+					// atualiza os valores de g e f, que tem a mesma heuristica
+					double heuristica = conhecido.valorF - conhecido.valorG;
+					conhecido.pai = estadoAtual;
+					conhecido.valorG = valorG;
+					conhecido.valorF = valorG + heuristica;
+					if (estadosAbertos.contem(conhecido)) {
+						estadosAbertos.diminuirChave(conhecido);
+					} else {
+						// Reabre o estado fechado, pois a heuristica pode nao ser consistente
+						estadosAbertos.inserir(conhecido);
+					}
 				}
+			}
+		}
+		return null;
+	}
 
-				// Calcula o valor g para o novo estado
-				double valorG = valoresG.get(estadoAtual) + entrada.getValue();
-
-				// Caso o valor g calculado seja otimo para esse estado, atualiza os valors de g
-				// e f
-				if (valoresG.get(entrada.getKey()) == null || valorG < valoresG.get(entrada.getKey())) {
-					valoresG.put(entrada.getKey(), valorG);
-					valoresF.put(entrada.getKey(), valorG + heuristica(cidades.get(0), new ArrayList<Integer>(),
-							entrada.getKey().cidadesNaoVisitadas, g));
+	/**
+	 * Executa a busca HDA* (A* distribuido por hash) pelo circuito de menor custo,
+	 * dividindo os estados entre threads.
+	 * <p>
+	 * Cada estado pertence a uma thread, escolhida pelo hash das cidades visitadas
+	 * e da cidade atual, que guarda a lista aberta e os estados gerados dos seus
+	 * estados. Os vizinhos gerados por uma thread sao enviados em lotes para as
+	 * filas sem bloqueio das suas donas, que unem os caminhos ate o mesmo estado
+	 * como no A*. Assim nenhuma estrutura da busca e compartilhada, e somente o
+	 * custo do melhor circuito e o contador de termino sao lidos por todas as
+	 * threads.
+	 * </p>
+	 * <p>
+	 * Cada thread expande os seus estados enquanto algum tiver valor f menor que
+	 * o custo do melhor circuito encontrado. A busca termina quando nenhuma thread
+	 * tem estados para expandir e nenhum lote esta a caminho.
+	 * </p>
+	 * 
+	 * @param grafo
+	 *            grafo com no maximo {@link Estado#MAXIMO_CIDADES} cidades.
+	 * @param tipo
+	 *            heuristica usada para estimar o custo restante.
+	 * @param threads
+	 *            quantidade de threads.
+	 * @param cache
+	 *            define a capacidade do cache da heuristica de cada thread, e ao
+	 *            final da busca contem a soma dos seus acertos e faltas.
+	 * @return estado final, cujo caminho e o circuito de menor custo, ou
+	 *         {@code null} caso nao exista circuito.
+	 */
+	public static Estado hdaEstrela(Grafo<Integer> grafo, Heuristica tipo, int threads, CacheHeuristica cache) {
+		if (threads < 1)
+			throw new IllegalArgumentException("A quantidade de threads deve ser positiva: " + threads);
+		GrafoCSR<Integer> g = grafo.congelar();
+		cache.associar(g);
+		return new BuscaDistribuida(g, tipo, g.matrizDistancias(), threads, cache).executar();
+	}
+
+	/**
+	 * Estado compartilhado pelas threads do HDA*.
+	 */
+	private static final class BuscaDistribuida {
+		// Quantidade de estados enviados juntos para a mesma thread, e de expansoes
+		// entre os envios dos lotes incompletos
+		private static final int TAMANHO_LOTE = 64;
+
+		private final GrafoCSR<Integer> g;
+		private final Heuristica tipo;
+		private final double[] distancias;
+		private final CacheHeuristica cache;
+		private final Trabalhador[] trabalhadores;
+
+		// Threads ativas mais estados enviados e ainda nao recebidos. So chega a zero
+		// quando nao ha mais trabalho, pois um estado so e enviado por uma thread ativa
+		private final AtomicLong pendentes;
+
+		// O estado final pertence a uma unica thread, que e a unica que escreve nestes
+		// campos
+		private volatile double custoMelhorFinal = Double.POSITIVE_INFINITY;
+		private volatile Estado melhorFinal;
+
+		private volatile Throwable erro;
+
+		BuscaDistribuida(GrafoCSR<Integer> g, Heuristica tipo, double[] distancias, int threads,
+				CacheHeuristica cache) {
+			this.g = g;
+			this.tipo = tipo;
+			this.distancias = distancias;
+			this.cache = cache;
+			this.trabalhadores = new Trabalhador[threads];
+			this.pendentes = new AtomicLong(threads);
+			for (int i = 0; i < threads; i++)
+				trabalhadores[i] = new Trabalhador();
+		}
+
+		Estado executar() {
+			Estado estadoInicial = new Estado(g.getVertices());
+			estadoInicial.valorG = 0;
+			pendentes.incrementAndGet();
+			trabalhadores[dono(estadoInicial)].caixa.add(new Estado[] { estadoInicial });
+
+			for (Trabalhador t : trabalhadores)
+				t.start();
+			try {
+				for (Trabalhador t : trabalhadores)
+					t.join();
+			} catch (InterruptedException e) {
+				erro = e;
+				Thread.currentThread().interrupt();
+			}
+			if (erro != null)
+				throw new IllegalStateException("Falha na busca paralela", erro);
+
+			for (Trabalhador t : trabalhadores)
+				cache.somarContadores(t.cache);
+			if (melhorFinal == null)
+				return null;
+
+			// Os pais de um estado podem pertencer a outras threads, que continuaram
+			// melhorando os seus caminhos depois de enviar o estado. Com as threads
+			// terminadas os caminhos nao mudam mais, entao o custo do circuito e o do
+			// caminho atual ate o estado final
+			double custo = 0;
+			for (Estado e = melhorFinal; e.pai != null; e = e.pai)
+				custo += distancias[e.pai.atual * g.size() + e.atual];
+			melhorFinal.valorG = custo;
+			return melhorFinal;
+		}
+
+		private int dono(Estado estado) {
+			return ((estado.hashCode() * 0x9E3779B9) >>> 1) % trabalhadores.length;
+		}
+
+		/**
+		 * Thread dona de parte dos estados, com a sua lista aberta, os seus estados
+		 * gerados e a fila dos lotes recebidos das outras threads.
+		 */
+		private final class Trabalhador extends Thread {
+			final ConcurrentLinkedQueue<Estado[]> caixa = new ConcurrentLinkedQueue<Estado[]>();
+			final CacheHeuristica cache = new CacheHeuristica(BuscaDistribuida.this.cache.getCapacidade());
+			private final ListaAberta estadosAbertos = new ListaAberta();
+			private final HashMap<Estado, Estado> estadosGerados = new HashMap<Estado, Estado>();
+			private final ArrayList<ArrayList<Estado>> saida = new ArrayList<ArrayList<Estado>>();
+			private boolean ativo = true;
+
+			Trabalhador() {
+				setDaemon(true);
+				cache.associar(g);
+				for (int i = 0; i < trabalhadores.length; i++)
+					saida.add(new ArrayList<Estado>());
+			}
+
+			@Override
+			public void run() {
+				try {
+					buscar();
+				} catch (Throwable t) {
+					erro = t;
+				}
+			}
+
+			private void buscar() {
+				int expansoes = 0;
+				while (erro == null) {
+					// Recebe os lotes antes de expandir, para expandir o melhor estado
+					Estado[] lote = caixa.poll();
+					if (lote != null) {
+						if (!ativo) {
+							ativo = true;
+							pendentes.incrementAndGet();
+						}
+						for (Estado estado : lote)
+							receber(estado);
+						pendentes.addAndGet(-lote.length);
+						continue;
+					}
+
+					if (!estadosAbertos.vazia() && estadosAbertos.estado(0).valorF < custoMelhorFinal) {
+						expandir(estadosAbertos.removerMinimo());
+						if (++expansoes % TAMANHO_LOTE == 0)
+							enviarLotes();
+						continue;
+					}
+
+					// Nenhum estado pode melhorar o circuito: espera por novos estados ou pelo
+					// fim da busca
+					enviarLotes();
+					if (ativo) {
+						ativo = false;
+						pendentes.decrementAndGet();
+					}
+					if (pendentes.get() == 0)
+						return;
+					Thread.yield();
+				}
+			}
+
+			/**
+			 * Une um estado recebido aos estados gerados, como no A*. A heuristica fica
+			 * guardada no estado, pois nao pode ser recuperada de f - g quando os dois
+			 * valores sao infinitos.
+			 */
+			private void receber(Estado estado) {
+				Estado conhecido = estadosGerados.get(estado);
+				if (conhecido == null) {
+					estado.valorH = estimativa(tipo, estado, g, distancias, cache);
+					estado.valorF = estado.valorG + estado.valorH;
+					estadosGerados.put(estado, estado);
+					conhecido = estado;
+				} else if (estado.valorG < conhecido.valorG) {
+					// O pai pertence a outra thread, e so e lido depois do fim da busca
+					conhecido.pai = estado.pai;
+					conhecido.valorG = estado.valorG;
+					conhecido.valorF = estado.valorG + conhecido.valorH;
+				} else {
+					return;
+				}
+
+				// O estado final nao precisa ser expandido
+				if (conhecido.isFinal()) {
+					melhorFinal = conhecido;
+					custoMelhorFinal = conhecido.valorG;
+				} else if (estadosAbertos.contem(conhecido)) {
+					estadosAbertos.diminuirChave(conhecido);
+				} else {
+					estadosAbertos.inserir(conhecido);
+				}
+			}
+
+			private void expandir(Estado estadoAtual) {
+				for (Map.Entry<Estado, Double> entrada : getVizinhos(estadoAtual, g, distancias).entrySet()) {
+					Estado vizinho = entrada.getKey();
+					vizinho.valorG = estadoAtual.valorG + entrada.getValue();
+					int dono = dono(vizinho);
+					if (trabalhadores[dono] == this) {
+						receber(vizinho);
+					} else {
+						ArrayList<Estado> lote = saida.get(dono);
+						lote.add(vizinho);
+						if (lote.size() >= TAMANHO_LOTE)
+							enviar(dono);
+					}
+				}
+			}
+
+			private void enviarLotes() {
+				for (int i = 0; i < trabalhadores.length; i++)
+					if (!saida.get(i).isEmpty())
+						enviar(i);
+			}
+
+			/**
+			 * Envia o lote de estados de uma thread. Os estados sao contados como
+			 * pendentes antes de entrarem na fila, enquanto esta thread ainda esta ativa.
+			 */
+			private void enviar(int dono) {
+				ArrayList<Estado> lote = saida.get(dono);
+				pendentes.addAndGet(lote.size());
+				trabalhadores[dono].caixa.add(lote.toArray(new Estado[lote.size()]));
+				lote.clear();
+			}
+		}
+	}
+
+	/**
+	 * Busca IDA*: repete buscas em profundidade que cortam os estados com valor f
+	 * acima do limite, comecando pelo valor f do estado inicial e aumentando o
+	 * limite a cada repeticao para o menor valor f cortado.
+	 */
+	private static Estado idaEstrela(GrafoCSR<Integer> g, Heuristica tipo, double[] distancias,
+			CacheHeuristica cache) {
+		Estado estadoInicial = new Estado(g.getVertices());
+		estadoInicial.valorG = 0;
+		estadoInicial.valorF = estimativa(tipo, estadoInicial, g, distancias, cache);
+		double limite = estadoInicial.valorF;
+		double[] proximoLimite = new double[1];
+		while (limite < Double.POSITIVE_INFINITY) {
+			proximoLimite[0] = Double.POSITIVE_INFINITY;
+			Estado fim = buscaLimitada(estadoInicial, limite, proximoLimite, g, tipo, distancias, cache);
+			if (fim != null)
+				return fim;
+			limite = proximoLimite[0];
+		}
+		return null;
+	}
+
+	/**
+	 * Busca em profundidade a partir de um estado, sem passar dos estados com valor
+	 * f maior que o limite. A profundidade e no maximo a quantidade de cidades mais
+	 * um.
+	 * 
+	 * @return estado final encontrado, ou {@code null}; o menor valor f cortado e
+	 *         guardado em {@code proximoLimite}.
+	 */
+	private static Estado buscaLimitada(Estado estado, double limite, double[] proximoLimite, GrafoCSR<Integer> g,
+			Heuristica tipo, double[] distancias, CacheHeuristica cache) {
+		if (estado.valorF > limite) {
+			proximoLimite[0] = Math.min(proximoLimite[0], estado.valorF);
+			return null;
+		}
+		if (estado.isFinal())
+			return estado;
+
+		// Explora primeiro os vizinhos de menor valor f
+		ArrayList<Estado> vizinhos = new ArrayList<Estado>();
+		for (Map.Entry<Estado, Double> entrada : getVizinhos(estado, g, distancias).entrySet()) {
+			Estado vizinho = entrada.getKey();
+			vizinho.valorG = estado.valorG + entrada.getValue();
+			vizinho.valorF = Math.max(estado.valorF, vizinho.valorG + estimativa(tipo, vizinho, g, distancias, cache));
+			vizinhos.add(vizinho);
+		}
+		Collections.sort(vizinhos, COMPARADOR_F);
+		for (Estado vizinho : vizinhos) {
+			Estado fim = buscaLimitada(vizinho, limite, proximoLimite, g, tipo, distancias, cache);
+			if (fim != null)
+				return fim;
+		}
+		return null;
+	}
+
+	/**
+	 * Busca SMA*: um A* em arvore com no maximo {@code limiteEstados} estados na
+	 * memoria.
+	 * <p>
+	 * Cada estado guarda as cidades dos seus filhos que estao na memoria, e a cada
+	 * vez que e o melhor estado aberto gera somente o seu melhor filho fora da
+	 * memoria, continuando aberto enquanto houver outros. Ao passar do limite, a
+	 * folha aberta de maior valor f e esquecida e o pai guarda o seu valor f, que
+	 * volta a ser usado quando o filho for gerado novamente, e volta a lista aberta
+	 * com o menor valor f entre os filhos esquecidos. Os valores f nunca diminuem
+	 * ao longo de um caminho, entao o circuito encontrado e otimo sempre que o
+	 * limite comporta o caminho ate ele.
+	 * </p>
+	 */
+	private static Estado smaEstrela(GrafoCSR<Integer> g, Heuristica tipo, double[] distancias,
+			CacheHeuristica cache, int limiteEstados) {
+		Estado estadoInicial = new Estado(g.getVertices());
+		estadoInicial.valorG = 0;
+		estadoInicial.valorF = estimativa(tipo, estadoInicial, g, distancias, cache);
+		estadoInicial.posicao = 0;
+
+		TreeSet<Estado> estadosAbertos = new TreeSet<Estado>(COMPARADOR_SMA);
+		estadosAbertos.add(estadoInicial);
+		int estadosNaMemoria = 1;
+		int estadosCriados = 1;
+
+		while (!estadosAbertos.isEmpty()) {
+			Estado estadoAtual = estadosAbertos.pollFirst();
+			if (estadoAtual.isFinal())
+				return estadoAtual;
+
+			double valorFAtual = estadoAtual.valorF;
+
+			// Gera somente o filho de menor valor f que nao esta na memoria
+			Estado melhorFilho = null;
+			double proximoValorF = Double.POSITIVE_INFINITY;
+			for (Map.Entry<Estado, Double> entrada : getVizinhos(estadoAtual, g, distancias).entrySet()) {
+				Estado vizinho = entrada.getKey();
+				if ((estadoAtual.filhos & (1L << vizinho.atual)) != 0)
+					continue;
+				vizinho.valorG = estadoAtual.valorG + entrada.getValue();
+				vizinho.valorF = Math.max(valorFAtual,
+						vizinho.valorG + estimativa(tipo, vizinho, g, distancias, cache));
+				// Recupera o valor f guardado quando o filho foi esquecido
+				if (estadoAtual.esquecidos != null)
+					vizinho.valorF = Math.max(vizinho.valorF, estadoAtual.esquecidos[vizinho.atual]);
+				if (melhorFilho == null || vizinho.valorF < melhorFilho.valorF) {
+					if (melhorFilho != null)
+						proximoValorF = Math.min(proximoValorF, melhorFilho.valorF);
+					melhorFilho = vizinho;
+				} else {
+					proximoValorF = Math.min(proximoValorF, vizinho.valorF);
 				}
 			}
+			if (melhorFilho == null)
+				continue;
+
+			melhorFilho.posicao = estadosCriados++;
+			estadosAbertos.add(melhorFilho);
+			estadoAtual.filhos |= 1L << melhorFilho.atual;
+			estadosNaMemoria++;
+
+			// O estado continua aberto enquanto tiver filhos fora da memoria, com o menor
+			// valor f entre eles
+			if (proximoValorF < Double.POSITIVE_INFINITY) {
+				estadoAtual.valorF = proximoValorF;
+				estadosAbertos.add(estadoAtual);
+			}
+
+			while (estadosNaMemoria > limiteEstados) {
+				esquecerPiorFolha(estadosAbertos, g.size());
+				estadosNaMemoria--;
+			}
 		}
-		return new Estado(null, null);
+		return null;
 	}
 
-	public static double heuristica(Integer comeco, ArrayList<Integer> arvore, ArrayList<Integer> cidadesNaoVisitadas,
-			Grafo<Integer> g) {
-		if (cidadesNaoVisitadas.isEmpty()) {
-			// Caso tenha chego no n� final, o valor da heuristica � zero
-			return 0;
-		} else {
-			// Copia as cidadeds n�o visitadas do estado atual, para n�o haver mudan�as n�o
-			// intencionadas ao se modificar as cidades
-			ArrayList<Integer> factiveis = new ArrayList<Integer>();
-			for (int j = 0; j < cidadesNaoVisitadas.size(); j++) {
-				Integer proxElem = cidadesNaoVisitadas.get(j);
-				factiveis.add(proxElem);
-			}
-
-			// Adiciona o ponto inicial como objetivo, uma vez que n�o estamos mexendo no
-			// pr�pio estado
-			if (!factiveis.contains(comeco) && !arvore.contains(comeco)) {
-				factiveis.add(comeco);
-			}
-
-			if (arvore.isEmpty()) {
-				// Se esse for o primeiro n�, come�a a �rvore com um n� arbitr�rio
-				arvore.add(factiveis.get(0));
-				factiveis.remove(cidadesNaoVisitadas.get(0));
-				return heuristica(comeco, arvore, factiveis, g);
-			} else {
-				// Caso contr�rio, calcula-se o custo de uma �rvore geradora m�nima, passando
-				// por todos os n�s n�o visitados e de volta ao inicial
-				double distancia = getDistancia(arvore.get(0), factiveis.get(0), g);
-				Integer cidadeProx = factiveis.get(0);
-				for (int i = 0; i < arvore.size(); i++) {
-					for (int j = 0; j < factiveis.size(); j++) {
-						if (getDistancia(arvore.get(i), factiveis.get(j), g) < distancia) {
-							distancia = getDistancia(arvore.get(i), factiveis.get(j), g);
-							cidadeProx = factiveis.get(j);
+	/**
+	 * Esquece a folha aberta de maior valor f, guardando esse valor no pai, que e
+	 * aberto novamente.
+	 */
+	private static void esquecerPiorFolha(TreeSet<Estado> estadosAbertos, int n) {
+		Iterator<Estado> piores = estadosAbertos.descendingIterator();
+		while (piores.hasNext()) {
+			Estado folha = piores.next();
+			if (folha.filhos != 0 || folha.pai == null)
+				continue;
+			piores.remove();
+			Estado pai = folha.pai;
+			pai.filhos &= ~(1L << folha.atual);
+			if (pai.esquecidos == null)
+				pai.esquecidos = new double[n];
+			pai.esquecidos[folha.atual] = folha.valorF;
+			if (estadosAbertos.remove(pai))
+				pai.valorF = Math.min(pai.valorF, folha.valorF);
+			else
+				pai.valorF = folha.valorF;
+			estadosAbertos.add(pai);
+			return;
+		}
+		throw new IllegalStateException("Limite de estados insuficiente para a busca");
+	}
+
+	/**
+	 * Executa a busca ARA* (A* com peso, anytime), que encontra rapidamente um
+	 * circuito com a heuristica multiplicada por um peso maior que 1 e, enquanto
+	 * houver tempo, diminui o peso e melhora o circuito.
+	 * <p>
+	 * Cada iteracao reaproveita os estados gerados pelas anteriores: somente os
+	 * estados abertos e os que tiveram o valor g melhorado depois de expandidos
+	 * voltam a lista aberta, com o valor f recalculado pelo novo peso. A iteracao
+	 * termina quando o circuito conhecido nao e pior que o menor valor f aberto,
+	 * sem precisar expandir o estado final.
+	 * </p>
+	 * <p>
+	 * Ao final de cada iteracao o limite de subotimalidade e o custo do circuito
+	 * dividido pelo menor valor g + h entre os estados que ainda podem melhora-lo,
+	 * que e um limite inferior do custo otimo. A busca para quando o limite chega a
+	 * 1, provando que o circuito e otimo, ou quando o prazo acaba.
+	 * </p>
+	 * 
+	 * @param grafo
+	 *            grafo com no maximo {@link Estado#MAXIMO_CIDADES} cidades.
+	 * @param tipo
+	 *            heuristica usada para estimar o custo restante.
+	 * @param pesoInicial
+	 *            peso da heuristica na primeira iteracao, pelo menos 1.
+	 * @param decrementoPeso
+	 *            quanto o peso diminui a cada iteracao, ate chegar a 1.
+	 * @param prazo
+	 *            tempo maximo da busca, em milissegundos.
+	 * @param ouvinte
+	 *            recebe cada circuito melhorado com o seu limite, ou {@code null}.
+	 * @return estado final do melhor circuito encontrado, ou {@code null} caso
+	 *         nao exista circuito ou nenhum seja encontrado dentro do prazo.
+	 */
+	public static Estado araEstrela(Grafo<Integer> grafo, Heuristica tipo, double pesoInicial,
+			double decrementoPeso, long prazo, OuvinteCircuito ouvinte) {
+		if (pesoInicial < 1)
+			throw new IllegalArgumentException("O peso inicial deve ser pelo menos 1: " + pesoInicial);
+		if (decrementoPeso <= 0)
+			throw new IllegalArgumentException("O decremento do peso deve ser positivo: " + decrementoPeso);
+		long fimPrazo = System.nanoTime() + prazo * 1000000L;
+
+		GrafoCSR<Integer> g = grafo.congelar();
+		CacheHeuristica cache = new CacheHeuristica();
+		cache.associar(g);
+		double[] distancias = g.matrizDistancias();
+
+		Estado estadoInicial = new Estado(g.getVertices());
+		estadoInicial.valorG = 0;
+		estadoInicial.valorH = estimativa(tipo, estadoInicial, g, distancias, cache);
+
+		// Estados abertos ordenados por g + peso * h, todos os estados gerados, os
+		// expandidos na iteracao atual e os que melhoraram depois de expandidos
+		ListaAberta estadosAbertos = new ListaAberta();
+		HashMap<Estado, Estado> estadosGerados = new HashMap<Estado, Estado>();
+		HashSet<Estado> estadosFechados = new HashSet<Estado>();
+		HashSet<Estado> estadosInconsistentes = new HashSet<Estado>();
+
+		double peso = pesoInicial;
+		estadoInicial.valorF = peso * estadoInicial.valorH;
+		estadosAbertos.inserir(estadoInicial);
+		estadosGerados.put(estadoInicial, estadoInicial);
+
+		Estado melhorFinal = null;
+		double custoPublicado = Double.POSITIVE_INFINITY;
+		double limitePublicado = Double.POSITIVE_INFINITY;
+		while (true) {
+			// Expande os estados enquanto algum puder melhorar o circuito conhecido. Se o
+			// prazo acabar, o circuito encontrado ainda e publicado antes de retornar
+			boolean prazoEsgotado = false;
+			while (!estadosAbertos.vazia() && (melhorFinal == null
+					|| melhorFinal.valorG > estadosAbertos.estado(0).valorF)) {
+				if (System.nanoTime() - fimPrazo >= 0) {
+					prazoEsgotado = true;
+					break;
+				}
+				Estado estadoAtual = estadosAbertos.removerMinimo();
+				estadosFechados.add(estadoAtual);
+
+				for (Map.Entry<Estado, Double> entrada : getVizinhos(estadoAtual, g, distancias).entrySet()) {
+					Estado vizinho = entrada.getKey();
+					double valorG = estadoAtual.valorG + entrada.getValue();
+					Estado conhecido = estadosGerados.get(vizinho);
+					if (conhecido == null) {
+						vizinho.valorG = valorG;
+						vizinho.valorH = estimativa(tipo, vizinho, g, distancias, cache);
+						vizinho.valorF = valorG + peso * vizinho.valorH;
+						estadosGerados.put(vizinho, vizinho);
+						estadosAbertos.inserir(vizinho);
+						if (vizinho.isFinal())
+							melhorFinal = vizinho;
+					} else if (valorG < conhecido.valorG) {
+						conhecido.pai = estadoAtual;
+						conhecido.valorG = valorG;
+						conhecido.valorF = valorG + peso * conhecido.valorH;
+						if (estadosFechados.contains(conhecido)) {
+							// Sera reaberto somente na proxima iteracao
+							estadosInconsistentes.add(conhecido);
+						} else if (estadosAbertos.contem(conhecido)) {
+							estadosAbertos.diminuirChave(conhecido);
+						} else {
+							estadosAbertos.inserir(conhecido);
 						}
 					}
 				}
+			}
+			if (melhorFinal == null)
+				return null;
+
+			// Os caminhos ate os estados intermediarios podem ter melhorado depois que o
+			// estado final foi gerado, entao o custo do circuito e o do caminho
+			// atual. A lista de abertos e refeita antes de ser usada de novo, entao o valor
+			// g do estado final pode ser corrigido aqui
+			double custo = 0;
+			for (Estado e = melhorFinal; e.pai != null; e = e.pai)
+				custo += distancias[e.pai.atual * g.size() + e.atual];
+			melhorFinal.valorG = custo;
+
+			// Um custo sem limite nao e um circuito, e nao deve ser publicado como otimo
+			if (custo >= Double.MAX_VALUE)
+				return null;
+
+			// Limite inferior do custo otimo entre os estados que ainda podem melhorar o
+			// circuito
+			double limiteInferior = custo;
+			for (int i = 0; i < estadosAbertos.tamanho(); i++) {
+				Estado estado = estadosAbertos.estado(i);
+				limiteInferior = Math.min(limiteInferior, estado.valorG + estado.valorH);
+			}
+			for (Estado estado : estadosInconsistentes)
+				limiteInferior = Math.min(limiteInferior, estado.valorG + estado.valorH);
+			double limite = custo <= limiteInferior ? 1 : custo / limiteInferior;
 
-				arvore.add(cidadeProx);
-				factiveis.remove(cidadeProx);
+			if (ouvinte != null && (custo < custoPublicado || limite < limitePublicado)) {
+				custoPublicado = custo;
+				limitePublicado = limite;
+				ouvinte.circuitoEncontrado(melhorFinal.getCidadesVisitadas(), custoPublicado, limitePublicado);
+			}
+			if (limite <= 1 || prazoEsgotado || System.nanoTime() - fimPrazo >= 0)
+				return melhorFinal;
 
-				return distancia + heuristica(comeco, arvore, factiveis, g);
+			// Diminui o peso e reabre os estados inconsistentes, recalculando os valores f
+			// de todos os abertos
+			peso = Math.max(1, Math.min(peso - decrementoPeso, limite));
+			ListaAberta novosAbertos = new ListaAberta();
+			for (int i = 0; i < estadosAbertos.tamanho(); i++)
+				estadosInconsistentes.add(estadosAbertos.estado(i));
+			for (Estado estado : estadosInconsistentes) {
+				estado.valorF = estado.valorG + peso * estado.valorH;
+				novosAbertos.inserir(estado);
 			}
+			estadosAbertos = novosAbertos;
+			estadosInconsistentes.clear();
+			estadosFechados.clear();
 		}
 	}
 
-	public static LinkedHashMap<Estado, Double> getVizinhos(Estado estado, ArrayList<Integer> cidades,
-			Grafo<Integer> g) {
-		LinkedHashMap<Estado, Double> vizinhos = new LinkedHashMap<Estado, Double>();
-		Integer cidadeAtual = estado.cidadesVisitadas.get(estado.cidadesVisitadas.size() - 1);
+	// Ordena os estados pelo valor f, e em caso de empate pelo maior valor g
+	private static final Comparator<Estado> COMPARADOR_F = new Comparator<Estado>() {
+		@Override
+		public int compare(Estado a, Estado b) {
+			int c = Double.compare(a.valorF, b.valorF);
+			return c != 0 ? c : Double.compare(b.valorG, a.valorG);
+		}
+	};
 
-		for (int i = 0; i < estado.cidadesNaoVisitadas.size(); i++) {
-			Integer vizinho = estado.cidadesNaoVisitadas.get(i);
+	// Ordem total dos estados abertos do SMA*, desempatando pelo estado criado por
+	// ultimo, para que entre as piores folhas seja esquecida a mais antiga
+	private static final Comparator<Estado> COMPARADOR_SMA = new Comparator<Estado>() {
+		@Override
+		public int compare(Estado a, Estado b) {
+			int c = COMPARADOR_F.compare(a, b);
+			return c != 0 ? c : Integer.compare(b.posicao, a.posicao);
+		}
+	};
+
+	private static double estimativa(Heuristica tipo, Estado estado, GrafoCSR<Integer> g, double[] distancias,
+			CacheHeuristica cache) {
+		if (tipo == Heuristica.HELD_KARP)
+			return heuristicaHeldKarp(estado, g, distancias);
+
+		// A arvore geradora minima so depende das cidades nao visitadas
+		long naoVisitadas = estado.naoVisitadas();
+		Double valor = cache.buscar(naoVisitadas);
+		if (valor == null) {
+			valor = heuristica(naoVisitadas, distancias, g.size());
+			cache.guardar(naoVisitadas, valor);
+		}
+		return valor;
+	}
 
-			// Copia as cidadeds visitadas do estado atual, para n�o haver mudan�as n�o
-			// intencionadas ao se modificar as cidades
-			ArrayList<Integer> caminho = new ArrayList<Integer>();
-			for (int j = 0; j < estado.cidadesVisitadas.size(); j++) {
-				Integer proxElem = estado.cidadesVisitadas.get(j);
-				caminho.add(proxElem);
+	/**
+	 * Estima o custo restante de um estado pelo limite de Held-Karp do caminho que
+	 * sai da cidade atual, passa por todas as cidades nao visitadas e termina na
+	 * cidade inicial.
+	 * 
+	 * @param estado
+	 *            estado a ser estimado.
+	 * @param g
+	 *            grafo do problema.
+	 * @param distancias
+	 *            matriz de distancias do grafo.
+	 * @return limite inferior do custo restante.
+	 */
+	public static double heuristicaHeldKarp(Estado estado, GrafoCSR<Integer> g, double[] distancias) {
+		if (estado.isFinal())
+			return 0;
+		int n = g.size();
+		int atual = estado.getAtual();
+		int inicial = 0;
+
+		// Subconjunto formado pela cidade atual, pelas nao visitadas e pela inicial
+		long conjunto = estado.naoVisitadas() | (1L << atual) | (1L << inicial);
+		int[] subconjunto = new int[Long.bitCount(conjunto)];
+		int k = 0;
+		for (long b = conjunto; b != 0; b &= b - 1)
+			subconjunto[k++] = Long.numberOfTrailingZeros(b);
+
+		double limite = LimiteHeldKarp.caminho(distancias, n, subconjunto, k, atual, inicial, new double[n],
+				ITERACOES_HELD_KARP, Double.MAX_VALUE);
+		// Folga para que erros de arredondamento nao tornem a heuristica inadmissivel
+		return limite >= Double.MAX_VALUE ? limite : Math.max(0, limite - 1e-9 * (1 + Math.abs(limite)));
+	}
+
+	/**
+	 * Calcula o custo da arvore geradora minima das cidades nao visitadas e da
+	 * cidade inicial, pelo algoritmo de Prim em O(n^2) sobre a matriz de
+	 * distancias. A arvore comeca pela cidade nao visitada de menor index.
+	 * 
+	 * @param naoVisitadas
+	 *            bits dos indexes das cidades nao visitadas.
+	 * @param distancias
+	 *            matriz de distancias n x n do grafo.
+	 * @param n
+	 *            quantidade de cidades do grafo.
+	 * @return custo da arvore geradora minima.
+	 */
+	public static double heuristica(long naoVisitadas, double[] distancias, int n) {
+		if (naoVisitadas == 0)
+			return 0;
+		double[] chave = CHAVES.get();
+		if (chave == null || chave.length < n) {
+			chave = new double[n];
+			CHAVES.set(chave);
+		}
+
+		// Cidades fora da arvore, incluindo a inicial
+		int raiz = Long.numberOfTrailingZeros(naoVisitadas);
+		long fora = (naoVisitadas | 1L) & ~(1L << raiz);
+		for (long b = fora; b != 0; b &= b - 1) {
+			int v = Long.numberOfTrailingZeros(b);
+			chave[v] = distancias[raiz * n + v];
+		}
+
+		double custo = 0;
+		while (fora != 0) {
+			// Adiciona a cidade mais proxima da arvore
+			int proxima = -1;
+			for (long b = fora; b != 0; b &= b - 1) {
+				int v = Long.numberOfTrailingZeros(b);
+				if (proxima == -1 || chave[v] < chave[proxima])
+					proxima = v;
+			}
+			custo += chave[proxima];
+			fora &= ~(1L << proxima);
+
+			for (long b = fora; b != 0; b &= b - 1) {
+				int v = Long.numberOfTrailingZeros(b);
+				if (distancias[proxima * n + v] < chave[v])
+					chave[v] = distancias[proxima * n + v];
 			}
-			caminho.add(vizinho);
+		}
+		return custo;
+	}
+
+	/**
+	 * Gera os estados alcancados a partir de um estado por uma aresta ate uma
+	 * cidade nao visitada, com o custo de cada movimento.
+	 * 
+	 * @param estado
+	 *            estado expandido.
+	 * @param g
+	 *            grafo do problema.
+	 * @param distancias
+	 *            matriz de distancias do grafo, com o menor peso entre as arestas de
+	 *            cada par de cidades, a mesma usada pelas heuristicas.
+	 * @return estados vizinhos e o custo do movimento ate cada um.
+	 * @see GrafoCSR#matrizDistancias()
+	 */
+	public static LinkedHashMap<Estado, Double> getVizinhos(Estado estado, GrafoCSR<Integer> g,
+			double[] distancias) {
+		LinkedHashMap<Estado, Double> vizinhos = new LinkedHashMap<Estado, Double>();
+
+		for (long b = estado.naoVisitadas(); b != 0; b &= b - 1) {
+			int vizinho = Long.numberOfTrailingZeros(b);
+			double peso = distancias[estado.getAtual() * g.size() + vizinho];
 
-			Estado novoEstado = new Estado(caminho, cidades);
+			// Sem aresta ate a cidade nao ha movimento, e nao um movimento de custo
+			// infinito
+			if (peso >= Double.MAX_VALUE)
+				continue;
 
 			// Adiciona o novo estado formado a lista de vizinhos, com seu valor g
 			// correspondente
-			vizinhos.put(novoEstado, getDistancia(cidadeAtual, vizinho, g));
+			vizinhos.put(new Estado(estado, vizinho), peso);
 		}
 
 		return vizinhos;
 	}
 
-	public static double getDistancia(Integer a, Integer b, Grafo<Integer> g) {
-		return g.getPesoAresta(a, b);
+	public static double getDistancia(Integer a, Integer b, GrafoCSR<Integer> g) {
+		return g.getPesoAresta(g.indiceDe(a), g.indiceDe(b));
 	}
 }
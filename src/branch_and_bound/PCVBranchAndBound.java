@@ -1,12 +1,24 @@
 package branch_and_bound;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
+import utils.ComparatorDouble;
 import utils.Grafo;
 import utils.Grafo.Adjacencia;
+import utils.GrafoCSR;
+import utils.GrafoReduzido;
+import utils.HeapRadix;
+import utils.LimiteHeldKarp;
+import utils.PriorityQueue;
 import utils.UnionFind;
 
 /**
@@ -23,6 +35,19 @@ import utils.UnionFind;
  * Para executar o algoritmo deve-se invocar o método {@link solve}, cujo o qual
  * retornará o grafo com o circuito mínimo
  * </p>
+ * <p>
+ * A ordem em que os nós da arvore de busca são explorados é definida por uma
+ * {@linkplain SearchStrategy estratégia de busca}, que por padrão é a busca em
+ * profundidade. O custo estimado de cada nó é dado pelo
+ * {@linkplain BoundType limite inferior} escolhido, por padrão a 1-Tree mínima.
+ * </p>
+ * <p>
+ * Com {@linkplain #setParallelism(int) paralelismo} maior que 1 a arvore de
+ * busca é dividida entre as threads de um {@link ForkJoinPool}, que compartilham
+ * a melhor solução encontrada para a poda. O custo da solução é o mesmo
+ * independente da quantidade de threads, e entre circuitos de mesmo custo é
+ * escolhido sempre o mesmo.
+ * </p>
  * 
  * Exemplo:
  * 
@@ -94,9 +119,93 @@ import utils.UnionFind;
  * @see Grafo
  */
 public class PCVBranchAndBound<T> {
+	private static final int DEFAULT_MEMORY_LIMIT = 1 << 20;
+	/**
+	 * Quantidade de níveis restantes abaixo da qual uma tarefa paralela explora
+	 * sua subárvore sequencialmente.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 5;
+	/**
+	 * Iterações do subgradiente do limite de Held-Karp no nó raiz, que parte de
+	 * penalidades nulas, e nos demais nós, que partem das penalidades do pai.
+	 */
+	private static final int ROOT_HELD_KARP_ITERATIONS = 50;
+	private static final int HELD_KARP_ITERATIONS = 10;
+	/**
+	 * Folga relativa descontada do limite de Held-Karp para que erros de
+	 * arredondamento não o tornem maior que o custo real.
+	 */
+	private static final double BOUND_TOLERANCE = 1e-9;
 	private Grafo<T> graph;
 	private double bestSolution = Double.MAX_VALUE;
 	private Grafo<T> bestSolutionGraph = null;
+	private boolean solved = false;
+	private boolean seedUpperBound = true;
+	private SearchStrategy strategy;
+	private BoundType boundType = BoundType.ONE_TREE;
+	/**
+	 * Matriz de distâncias do grafo sendo resolvido, usada pelas heurísticas do
+	 * limite superior inicial e pelo limite de Held-Karp.
+	 */
+	private double[] distances;
+	private int memoryLimit = DEFAULT_MEMORY_LIMIT;
+	private int parallelism = 1;
+	/**
+	 * Union Find reversível de cada thread, reaproveitado pela verificação de
+	 * factibilidade de todos os nós.
+	 */
+	private ThreadLocal<UnionFind> feasibilitySets;
+
+	/**
+	 * Estratégias de seleção do próximo nó da arvore de busca a ser explorado.
+	 * 
+	 * @author Wallace Manzano
+	 *
+	 */
+	public enum SearchStrategy {
+		/**
+		 * Busca em profundidade, com os filhos explorados na ordem da lista de
+		 * adjacência.
+		 */
+		DEPTH_FIRST,
+		/**
+		 * Busca em profundidade, com os filhos explorados em ordem crescente de custo
+		 * estimado.
+		 */
+		ORDERED_DEPTH_FIRST,
+		/**
+		 * Explora sempre o nó aberto de menor custo estimado (best-bound-first).
+		 */
+		BEST_FIRST,
+		/**
+		 * Busca em profundidade ordenada até encontrar o primeiro circuito, e então
+		 * busca pelo melhor custo estimado, voltando a busca em profundidade enquanto
+		 * a quantidade de nós abertos atingir o {@linkplain #setMemoryLimit(int)
+		 * limite de memória}.
+		 */
+		HYBRID
+	}
+
+	/**
+	 * Limites inferiores usados como custo estimado dos nós da arvore de busca.
+	 * 
+	 * @author Wallace Manzano
+	 *
+	 */
+	public enum BoundType {
+		/**
+		 * Custo da 1-Tree mínima do grafo reduzido do nó.
+		 */
+		ONE_TREE,
+		/**
+		 * Custo do caminho já percorrido somado ao limite de Held-Karp do caminho
+		 * restante, com penalidades otimizadas por subgradiente e iniciadas com as
+		 * penalidades do nó pai.
+		 * 
+		 * @see LimiteHeldKarp
+		 */
+		HELD_KARP
+	}
 
 	/**
 	 * Construtor da classe TSPBranchAndBound.
@@ -106,37 +215,139 @@ public class PCVBranchAndBound<T> {
 	 *            viajante a ser resolvido.
 	 */
 	public PCVBranchAndBound(Grafo<T> g) {
+		this(g, SearchStrategy.DEPTH_FIRST);
+	}
+
+	/**
+	 * Construtor da classe TSPBranchAndBound.
+	 * 
+	 * @param g
+	 *            {@link Grafo} representando o modelo do problema do caixeiro
+	 *            viajante a ser resolvido.
+	 * @param strategy
+	 *            {@linkplain SearchStrategy Estratégia} de busca.
+	 */
+	public PCVBranchAndBound(Grafo<T> g, SearchStrategy strategy) {
 		this.graph = g;
 		this.graph.setDirecionado(true);
+		this.strategy = strategy;
+	}
+
+	public SearchStrategy getSearchStrategy() {
+		return strategy;
+	}
+
+	public void setSearchStrategy(SearchStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Define a quantidade máxima de nós abertos ordenados por custo estimado na
+	 * estratégia {@link SearchStrategy#HYBRID}. Ao atingir o limite os novos nós são
+	 * explorados em profundidade até que a quantidade volte a ficar abaixo do
+	 * limite.
+	 * 
+	 * @param memoryLimit
+	 *            quantidade máxima de nós.
+	 * @throws IllegalArgumentException
+	 *             caso o limite seja menor que 1.
+	 */
+	public void setMemoryLimit(int memoryLimit) {
+		if (memoryLimit < 1)
+			throw new IllegalArgumentException();
+		this.memoryLimit = memoryLimit;
+	}
+
+	public boolean isSeedUpperBound() {
+		return seedUpperBound;
+	}
+
+	/**
+	 * Define se antes da busca é gerado um circuito por heurísticas construtivas,
+	 * cujo custo passa a ser o limite superior inicial da busca.
+	 * 
+	 * @param seedUpperBound
+	 *            true para gerar o circuito inicial.
+	 * @see #solve()
+	 */
+	public void setSeedUpperBound(boolean seedUpperBound) {
+		this.seedUpperBound = seedUpperBound;
+	}
+
+	public BoundType getBoundType() {
+		return boundType;
+	}
+
+	public void setBoundType(BoundType boundType) {
+		this.boundType = boundType;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Define a quantidade de threads usadas pelo método {@link solve}. Com valor 1
+	 * a busca é sequencial e segue a {@linkplain SearchStrategy estratégia}
+	 * escolhida; com valores maiores as subárvores são distribuídas em um
+	 * {@link ForkJoinPool}, sendo exploradas em profundidade ordenada.
+	 * 
+	 * @param parallelism
+	 *            quantidade de threads.
+	 * @throws IllegalArgumentException
+	 *             caso a quantidade seja menor que 1.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException();
+		this.parallelism = parallelism;
 	}
 
 	/**
 	 * Executa o algoritmo Branch and Bound no grafo que foi passado pelo
-	 * construtor. A busca é feita por profundidade simples e a poda dos ramos da
-	 * arvore de busca é feita por infactibilidade, qualidade e otimalidade.
+	 * construtor. A busca segue a {@linkplain SearchStrategy estratégia} escolhida
+	 * e a poda dos ramos da arvore de busca é feita por infactibilidade, qualidade
+	 * e otimalidade.
+	 * <p>
+	 * Caso o {@linkplain #setSeedUpperBound(boolean) limite superior inicial}
+	 * esteja habilitado, a busca começa com o melhor circuito encontrado pelas
+	 * heurísticas do vizinho mais próximo, da aresta gulosa e da arvore geradora
+	 * mínima duplicada, melhorados pelo 2-opt. Se a busca não encontrar circuito de
+	 * custo menor, este circuito é o retornado.
+	 * </p>
 	 * 
 	 * @return o {@linkplain Grafo grafo} com o circuito de menor custo.
 	 */
 	public Grafo<T> solve() {
-		/**
-		 * Execution Stack tem como função fazer possível a busca em profundidade e
-		 * evitando eventuais problemas de overflow na stack da Java Virtual Machine
-		 * (JVM).
-		 */
-		Stack<Node> executionStack = new Stack<>();
-		T v = graph.getVertices().get(0);
-		Node n = new Node(v, graph);
+		// o grafo original só é lido durante a busca
+		final GrafoCSR<T> frozenGraph = graph.congelar();
+		feasibilitySets = new ThreadLocal<UnionFind>() {
+			@Override
+			protected UnionFind initialValue() {
+				return new UnionFind(frozenGraph.size(), true);
+			}
+		};
+		if (boundType == BoundType.HELD_KARP || seedUpperBound)
+			distances = frozenGraph.matrizDistancias();
+		if (seedUpperBound)
+			seedUpperBound(frozenGraph);
+		solved = true;
+		if (parallelism > 1)
+			return solveParallel(frozenGraph);
+
+		Frontier frontier = createFrontier(frozenGraph);
+		Node n = new Node(0, frozenGraph);
+		List<Node> children = new ArrayList<>();
 
-		executionStack.push(n);
+		frontier.push(n);
 
-		while (!executionStack.empty()) {
-			n = executionStack.pop();
-			v = n.vortex;
+		while (!frontier.isEmpty()) {
+			n = frontier.pop();
 
 			// somente para teste
 
 			// System.out.println("Visited graph with cost " + n.calculateEstimatedCost());
-			// System.out.println(n.visited.toString());
+			// System.out.println(n.path.toString());
 			// System.out.println(n.reducedGraph.toString());
 
 			// poda por infactibilidade (não consegue fechar circuito)
@@ -146,54 +357,507 @@ public class PCVBranchAndBound<T> {
 
 			// poda por qualidade
 			if (n.calculateEstimatedCost() > bestSolution) {
+				// os demais nós abertos tem custo estimado maior ou igual
+				if (frontier.sortedByBound())
+					break;
 				continue;
 			}
 
 			// todas as cidades visitadas
-			if (n.level == graph.getVertices().size() - 1) {
-				boolean aux = false;
-
-				// ver se o circuito fecha
-				Adjacencia a = n.reducedGraph.primeiroAdjacente(v);
-				while (a != null) {
-					if (a.destino() == 0) {
-						aux = true;
-					} else {
-						n.reducedGraph.removeAresta(a.origem(), a.destino());
-					}
-					a = n.reducedGraph.proximoAdjacente(a);
-				}
-
+			if (n.isLeaf()) {
 				// se o cricuito fechar, atualiza a melhor solução.
-				if (aux && (n.calculateEstimatedCost() < bestSolution)) {
-					bestSolution = n.calculateEstimatedCost();
-					bestSolutionGraph = n.reducedGraph;
+				if (n.closesCircuit()) {
+					frontier.circuitFound();
+					if (n.calculateEstimatedCost() < bestSolution) {
+						bestSolution = n.calculateEstimatedCost();
+						bestSolutionGraph = n.reducedGraph.paraGrafo();
+					}
 				}
 				continue;
 			}
-			Adjacencia a = graph.primeiroAdjacente(v);
-			while (a != null) {
-				T vChild = graph.getVertices().get(a.destino());
-				if (!n.visited.contains(vChild)) {
-					Node child = new Node(vChild, n, a);
-					executionStack.add(child);
+			n.expand(children);
+			frontier.pushAll(children);
+
+		}
+
+		return bestSolutionGraph;
+	}
+
+	/**
+	 * Executa o Branch and Bound distribuindo as subárvores da arvore de busca
+	 * entre as threads de um {@link ForkJoinPool}.
+	 * 
+	 * @param frozenGraph
+	 *            grafo do problema.
+	 * @return o {@linkplain Grafo grafo} com o circuito de menor custo.
+	 */
+	private Grafo<T> solveParallel(GrafoCSR<T> frozenGraph) {
+		AtomicReference<Incumbent> incumbent = new AtomicReference<>(
+				new Incumbent(bestSolution, null, bestSolutionGraph));
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new SearchTask(new Node(0, frozenGraph), incumbent));
+		} finally {
+			pool.shutdown();
+		}
+		bestSolution = incumbent.get().cost;
+		bestSolutionGraph = incumbent.get().graph;
+		return bestSolutionGraph;
+	}
+
+	/**
+	 * Usa o circuito das heurísticas construtivas como melhor solução, caso seja
+	 * melhor que a atual.
+	 * 
+	 * @param frozenGraph
+	 *            grafo do problema.
+	 * @see TourHeuristics#bestTour(double[], int)
+	 */
+	private void seedUpperBound(GrafoCSR<T> frozenGraph) {
+		int n = frozenGraph.size();
+		if (n < 2)
+			return;
+		int[] tour = TourHeuristics.bestTour(distances, n);
+		if (tour == null)
+			return;
+		double cost = TourHeuristics.cost(distances, n, tour);
+		if (cost < bestSolution) {
+			bestSolution = cost;
+			bestSolutionGraph = tourGraph(frozenGraph, tour);
+		}
+	}
+
+	/**
+	 * Constrói o grafo de um circuito, com a aresta de menor peso entre cada par de
+	 * vértices consecutivos, no mesmo formato dos grafos das folhas da arvore de
+	 * busca.
+	 * 
+	 * @param frozenGraph
+	 *            grafo do problema.
+	 * @param tour
+	 *            indexes dos vértices do circuito, em ordem.
+	 * @return grafo com as arestas do circuito.
+	 */
+	private Grafo<T> tourGraph(GrafoCSR<T> frozenGraph, int[] tour) {
+		BitSet kept = new BitSet(frozenGraph.numeroArestas());
+		for (int i = 0; i < tour.length; i++) {
+			int u = tour[i], v = tour[(i + 1) % tour.length];
+			int cheapest = -1;
+			for (int a = frozenGraph.inicio(u); a < frozenGraph.fim(u); a++)
+				if (frozenGraph.destino(a) == v && (cheapest == -1 || frozenGraph.peso(a) < frozenGraph.peso(cheapest)))
+					cheapest = a;
+			kept.set(cheapest);
+		}
+		GrafoReduzido<T> reduced = new GrafoReduzido<>(frozenGraph);
+		for (int a = kept.nextClearBit(0); a < frozenGraph.numeroArestas(); a = kept.nextClearBit(a + 1))
+			reduced.removeAresta(a);
+		return reduced.paraGrafo();
+	}
+
+	/**
+	 * Cria a fronteira da estratégia escolhida. Na busca de melhor escolha com a
+	 * 1-Tree em um grafo não direcionado de pesos inteiros os custos estimados são
+	 * inteiros e quase sempre não diminuem de pai para filho, então é usado o
+	 * {@link HeapRadix}. Em grafos direcionados a árvore geradora do grafo reduzido
+	 * pode ficar mais barata ao remover arestas, e é usada a fila de prioridade.
+	 * 
+	 * @param frozenGraph
+	 *            grafo do problema.
+	 * @return fronteira vazia.
+	 */
+	private Frontier createFrontier(GrafoCSR<T> frozenGraph) {
+		switch (strategy) {
+		case ORDERED_DEPTH_FIRST:
+			return new DepthFirstFrontier(true);
+		case BEST_FIRST:
+			if (boundType == BoundType.ONE_TREE && frozenGraph.pesosInteiros() && !frozenGraph.direcionado())
+				return new RadixBestFirstFrontier();
+			return new BestFirstFrontier();
+		case HYBRID:
+			return new HybridFrontier();
+		default:
+			return new DepthFirstFrontier(false);
+		}
+	}
+
+	/**
+	 * Ordena os nós em ordem decrescente de custo estimado, para que ao serem
+	 * empilhados o de menor custo seja o primeiro a ser explorado.
+	 * 
+	 * @param nodes
+	 *            nós a serem ordenados.
+	 */
+	private void sortForStack(List<Node> nodes) {
+		Collections.sort(nodes, new Comparator<Node>() {
+			@Override
+			public int compare(Node a, Node b) {
+				return Double.compare(b.calculateEstimatedCost(), a.calculateEstimatedCost());
+			}
+		});
+	}
+
+	/**
+	 * Comparador de nós, para maior prioridade o nó de menor custo estimado e, em
+	 * caso de empate, o mais profundo, usando MinHeap.
+	 * 
+	 * @return Comparador
+	 * @see ComparatorDouble
+	 * @see PriorityQueue
+	 */
+	private ComparatorDouble<Node> getBoundComparator() {
+		return new ComparatorDouble<Node>() {
+			@Override
+			public double compare(Node a, Node b) {
+				double d = a.calculateEstimatedCost() - b.calculateEstimatedCost();
+				return d != 0 ? d : b.level - a.level;
+			}
+
+		};
+	}
+
+	/**
+	 * Melhor solução encontrada pela busca paralela. É imutável, sendo substituída
+	 * atomicamente a cada melhora.
+	 * 
+	 * @author Wallace Manzano
+	 *
+	 */
+	private final class Incumbent {
+		private final double cost;
+		private final int[] path;
+		private final Grafo<T> graph;
+
+		private Incumbent(double cost, int[] path, Grafo<T> graph) {
+			this.cost = cost;
+			this.path = path;
+			this.graph = graph;
+		}
+
+		/**
+		 * Verifica se um circuito é melhor que este. Em caso de empate no custo é
+		 * melhor o de menor caminho em ordem lexicográfica, tornando o resultado
+		 * independente da ordem de execução das threads.
+		 * 
+		 * @param otherCost
+		 *            custo do outro circuito.
+		 * @param otherPath
+		 *            arestas do outro circuito.
+		 * @return true se o outro circuito for melhor.
+		 */
+		private boolean worseThan(double otherCost, int[] otherPath) {
+			if (otherCost != cost)
+				return otherCost < cost;
+			if (path == null)
+				return false;
+			for (int i = 0; i < path.length && i < otherPath.length; i++)
+				if (otherPath[i] != path[i])
+					return otherPath[i] < path[i];
+			return false;
+		}
+	}
+
+	/**
+	 * Tarefa que explora a subárvore de um nó. Enquanto a subárvore for grande os
+	 * filhos são explorados por novas tarefas, que podem ser roubadas por outras
+	 * threads do {@link ForkJoinPool}; abaixo do {@link #SEQUENTIAL_THRESHOLD} a
+	 * subárvore é explorada em profundidade ordenada na própria tarefa.
+	 * 
+	 * @author Wallace Manzano
+	 *
+	 */
+	private class SearchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Node node;
+		private final AtomicReference<Incumbent> incumbent;
+
+		private SearchTask(Node node, AtomicReference<Incumbent> incumbent) {
+			this.node = node;
+			this.incumbent = incumbent;
+		}
+
+		@Override
+		protected void compute() {
+			int remaining = node.reducedGraph.size() - 1 - node.level;
+			if (remaining <= SEQUENTIAL_THRESHOLD) {
+				Stack<Node> executionStack = new Stack<>();
+				List<Node> children = new ArrayList<>();
+				executionStack.push(node);
+				while (!executionStack.empty()) {
+					Node n = executionStack.pop();
+					if (visit(n, children)) {
+						sortForStack(children);
+						executionStack.addAll(children);
+					}
 				}
-				a = graph.proximoAdjacente(a);
+				return;
 			}
 
+			List<Node> children = new ArrayList<>();
+			if (!visit(node, children))
+				return;
+			sortForStack(children);
+			List<SearchTask> tasks = new ArrayList<>(children.size());
+			// os filhos de menor custo estimado ficam no fim da lista
+			for (int i = children.size() - 1; i >= 0; i--)
+				tasks.add(new SearchTask(children.get(i), incumbent));
+			invokeAll(tasks);
 		}
 
-		return bestSolutionGraph;
+		/**
+		 * Poda ou expande um nó, atualizando a melhor solução caso ele feche um
+		 * circuito melhor.
+		 * 
+		 * @param n
+		 *            nó visitado.
+		 * @param children
+		 *            lista que receberá os filhos do nó.
+		 * @return true se o nó foi expandido.
+		 */
+		private boolean visit(Node n, List<Node> children) {
+			if (!n.checkFeasibility())
+				return false;
+			if (n.calculateEstimatedCost() > incumbent.get().cost)
+				return false;
+			if (n.isLeaf()) {
+				if (n.closesCircuit())
+					offer(n);
+				return false;
+			}
+			n.expand(children);
+			return true;
+		}
+
+		private void offer(Node n) {
+			double cost = n.calculateEstimatedCost();
+			int[] path = new int[n.path.size()];
+			for (int i = 0; i < path.length; i++)
+				path[i] = n.path.get(i);
+			Incumbent candidate = null;
+			while (true) {
+				Incumbent current = incumbent.get();
+				if (!current.worseThan(cost, path))
+					return;
+				if (candidate == null)
+					candidate = new Incumbent(cost, path, n.reducedGraph.paraGrafo());
+				if (incumbent.compareAndSet(current, candidate))
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Conjunto de nós abertos da arvore de busca, que define a ordem em que eles
+	 * são explorados.
+	 * 
+	 * @author Wallace Manzano
+	 *
+	 */
+	private abstract class Frontier {
+		abstract void push(Node n);
+
+		abstract Node pop();
+
+		abstract boolean isEmpty();
+
+		/**
+		 * Adiciona os filhos de um nó expandido.
+		 * 
+		 * @param nodes
+		 *            filhos do nó.
+		 */
+		void pushAll(List<Node> nodes) {
+			for (Node n : nodes)
+				push(n);
+		}
+
+		/**
+		 * Indica se os nós sempre saem em ordem crescente de custo estimado, caso em
+		 * que a busca pode terminar no primeiro nó podado por qualidade.
+		 * 
+		 * @return true se a ordem for por custo estimado.
+		 */
+		boolean sortedByBound() {
+			return false;
+		}
+
+		/**
+		 * Avisa que uma folha desta busca fechou um circuito, mesmo que ele não
+		 * melhore a solução atual.
+		 */
+		void circuitFound() {
+		}
+	}
+
+	/**
+	 * Busca em profundidade. Execution Stack tem como função fazer possível a
+	 * busca em profundidade e evitando eventuais problemas de overflow na stack da
+	 * Java Virtual Machine (JVM).
+	 */
+	private class DepthFirstFrontier extends Frontier {
+		private Stack<Node> executionStack = new Stack<>();
+		private boolean ordered;
+
+		private DepthFirstFrontier(boolean ordered) {
+			this.ordered = ordered;
+		}
+
+		@Override
+		void push(Node n) {
+			executionStack.push(n);
+		}
+
+		@Override
+		void pushAll(List<Node> nodes) {
+			if (ordered)
+				sortForStack(nodes);
+			super.pushAll(nodes);
+		}
+
+		@Override
+		Node pop() {
+			return executionStack.pop();
+		}
+
+		@Override
+		boolean isEmpty() {
+			return executionStack.empty();
+		}
+	}
+
+	/**
+	 * Busca pelo nó de menor custo estimado, usando a {@link PriorityQueue}.
+	 */
+	private class BestFirstFrontier extends Frontier {
+		private PriorityQueue<Node> queue = new PriorityQueue<>(getBoundComparator());
+
+		@Override
+		void push(Node n) {
+			queue.offer(n);
+		}
+
+		@Override
+		Node pop() {
+			return queue.poll();
+		}
+
+		@Override
+		boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		@Override
+		boolean sortedByBound() {
+			return true;
+		}
+	}
+
+	/**
+	 * Busca pelo nó de menor custo estimado quando os custos são inteiros, usando o
+	 * {@link HeapRadix}. Entre custos iguais sai primeiro o último nó inserido,
+	 * que tende a ser o mais profundo, como no {@link #getBoundComparator()}.
+	 * <p>
+	 * O {@link HeapRadix} só aceita chaves que não sejam menores que a última
+	 * removida. Se um nó tiver custo menor que o do último nó explorado, os nós
+	 * passam para uma {@link PriorityQueue}, que é usada até o fim da busca, para
+	 * que a ordem continue exata.
+	 * </p>
+	 */
+	private class RadixBestFirstFrontier extends Frontier {
+		private HeapRadix<Node> queue = new HeapRadix<>();
+		private PriorityQueue<Node> exactQueue = null;
+
+		@Override
+		void push(Node n) {
+			if (exactQueue != null) {
+				exactQueue.offer(n);
+				return;
+			}
+			double cost = n.calculateEstimatedCost();
+			long key = cost >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) cost;
+			if (key < queue.ultimaChave()) {
+				exactQueue = new PriorityQueue<>(getBoundComparator());
+				while (!queue.vazio())
+					exactQueue.offer(queue.removerMinimo());
+				exactQueue.offer(n);
+				return;
+			}
+			queue.inserir(key, n);
+		}
+
+		@Override
+		Node pop() {
+			return exactQueue != null ? exactQueue.poll() : queue.removerMinimo();
+		}
+
+		@Override
+		boolean isEmpty() {
+			return exactQueue != null ? exactQueue.isEmpty() : queue.vazio();
+		}
+
+		@Override
+		boolean sortedByBound() {
+			return true;
+		}
+	}
+
+	/**
+	 * Busca em profundidade ordenada até que uma folha feche um circuito, e depois
+	 * busca pelo menor custo estimado, mergulhando em profundidade sempre que a
+	 * fila de prioridade atingir o limite de memória. A troca depende das folhas
+	 * desta busca, e não da melhor solução, que já existe antes da busca quando o
+	 * {@linkplain #setSeedUpperBound(boolean) limite superior inicial} é usado.
+	 */
+	private class HybridFrontier extends Frontier {
+		private Stack<Node> executionStack = new Stack<>();
+		private PriorityQueue<Node> queue = new PriorityQueue<>(getBoundComparator());
+		private boolean circuitFound = false;
+
+		@Override
+		void push(Node n) {
+			if (!circuitFound || queue.size() >= memoryLimit)
+				executionStack.push(n);
+			else
+				queue.offer(n);
+		}
+
+		@Override
+		void pushAll(List<Node> nodes) {
+			sortForStack(nodes);
+			super.pushAll(nodes);
+		}
+
+		@Override
+		Node pop() {
+			// ao encontrar o primeiro circuito, passa os nós empilhados para a fila
+			if (circuitFound) {
+				while (!executionStack.empty() && queue.size() < memoryLimit)
+					queue.offer(executionStack.pop());
+			}
+			if (!executionStack.empty())
+				return executionStack.pop();
+			return queue.poll();
+		}
+
+		@Override
+		void circuitFound() {
+			circuitFound = true;
+		}
+
+		@Override
+		boolean isEmpty() {
+			return executionStack.empty() && queue.isEmpty();
+		}
 	}
 
 	/**
 	 * Retorna o custo do circuito dado pelo método {@link solve}. Caso o método não
 	 * tenha sido invocado, então ele será invocado e seu resultado será retornado.
 	 * 
-	 * @return o custo do circuito da solução.
+	 * @return o custo do circuito da solução, ou {@link Double#MAX_VALUE} caso não
+	 *         exista circuito.
 	 */
 	public double solutionCost() {
-		if (bestSolution == Double.MAX_VALUE)
+		if (!solved)
 			solve();
 		return bestSolution;
 	}
@@ -201,35 +865,48 @@ public class PCVBranchAndBound<T> {
 	/**
 	 * Classe auxiliar para representar um nó do espaço de estados da arvore de
 	 * busca.
+	 * <p>
+	 * Os vértices e arestas são representados pelas suas posições no
+	 * {@linkplain GrafoCSR grafo congelado}, e o grafo reduzido de cada nó é um
+	 * {@link GrafoReduzido} que compartilha as remoções do nó pai, evitando copiar o
+	 * grafo inteiro a cada nó criado.
+	 * </p>
 	 * 
 	 * @author Wallace Manzano
 	 *
 	 */
 	private class Node {
-		private Grafo<T> reducedGraph;
-		private List<Adjacencia> path;
-		private T vortex;
+		private GrafoReduzido<T> reducedGraph;
+		private List<Integer> path;
+		private int vortex;
 		private int level; // também representa a quantidade de cidades visitadas
 		private double estimatedCost;
-		private ArrayList<T> visited;
+		private boolean[] visited;
+		private double pathCost;
+		private double parentCost;
+		private double[] penalties;
 
 		/**
 		 * Cria um nó da arvore de busca. Este construtor deve ser usado somente para
 		 * criar o nó raiz.
 		 * 
 		 * @param v
-		 *            Primeiro nó do grafo a ser visitado.
+		 *            Index do primeiro nó do grafo a ser visitado.
 		 * @param graph
 		 *            Grafo inicial do problema a ser resolvido.
 		 */
-		private Node(T v, Grafo<T> graph) {
+		private Node(int v, GrafoCSR<T> graph) {
 			path = new ArrayList<>();
 			level = 0;
 			estimatedCost = -1;
-			reducedGraph = graph.clone();
+			reducedGraph = new GrafoReduzido<>(graph);
 			vortex = v;
-			visited = new ArrayList<>();
-			visited.add(v);
+			visited = new boolean[graph.size()];
+			visited[v] = true;
+			pathCost = 0;
+			parentCost = 0;
+			if (boundType == BoundType.HELD_KARP)
+				penalties = new double[graph.size()];
 		}
 
 		/**
@@ -237,26 +914,73 @@ public class PCVBranchAndBound<T> {
 		 * mantém todas reduções dos nós ascendentes da arvore de busca.
 		 * 
 		 * @param v
-		 *            Nó sendo visitado.
+		 *            Index do nó sendo visitado.
 		 * @param parent
 		 *            {@linkplain Node Nó} pai.
 		 * @param addToPath
-		 *            {@link Adjacencia} a ser mantida no grafo.
+		 *            Posição da aresta a ser mantida no grafo.
 		 * @see Node#reducedGraph
 		 */
-		private Node(T v, Node parent, Adjacencia addToPath) {
+		private Node(int v, Node parent, int addToPath) {
 			path = new ArrayList<>(parent.path);
 			path.add(addToPath);
 			level = parent.level + 1;
 			estimatedCost = -1;
 			vortex = v;
-			reducedGraph = parent.reducedGraph.clone();
-			visited = new ArrayList<>(parent.visited);
-			visited.add(v);
+			reducedGraph = new GrafoReduzido<>(parent.reducedGraph);
+			visited = parent.visited.clone();
+			visited[v] = true;
+			pathCost = parent.pathCost + parent.reducedGraph.base().peso(addToPath);
+			parentCost = parent.estimatedCost;
+			// compartilhado até o cálculo do custo estimado, que o copia
+			penalties = parent.penalties;
 
 			reduceGraph(v, parent, addToPath);
 		}
 
+		private boolean isLeaf() {
+			return level == reducedGraph.size() - 1;
+		}
+
+		/**
+		 * Verifica se o circuito fecha a partir do último nó visitado, removendo do
+		 * grafo reduzido as arestas do último nó que não voltam ao nó inicial. Deve
+		 * ser usado somente quando todas as cidades foram visitadas.
+		 * 
+		 * @return true se existir aresta de volta ao nó inicial.
+		 */
+		private boolean closesCircuit() {
+			GrafoCSR<T> g = reducedGraph.base();
+			boolean aux = false;
+			for (int a = g.inicio(vortex); a < g.fim(vortex); a++) {
+				if (!reducedGraph.ativa(a))
+					continue;
+				if (g.destino(a) == 0) {
+					aux = true;
+				} else {
+					reducedGraph.removeAresta(a);
+				}
+			}
+			return aux;
+		}
+
+		/**
+		 * Cria os nós filhos, um para cada aresta que sai do nó para uma cidade ainda
+		 * não visitada.
+		 * 
+		 * @param children
+		 *            lista que receberá os filhos, que é limpa antes.
+		 */
+		private void expand(List<Node> children) {
+			GrafoCSR<T> g = reducedGraph.base();
+			children.clear();
+			for (int e = g.inicio(vortex); e < g.fim(vortex); e++) {
+				if (!visited[g.destino(e)]) {
+					children.add(new Node(g.destino(e), this, e));
+				}
+			}
+		}
+
 		/**
 		 * Realiza a redução do grafo referente ao nó.
 		 * <p>
@@ -267,28 +991,23 @@ public class PCVBranchAndBound<T> {
 		 * </p>
 		 * 
 		 * @param v
-		 *            Nó sendo visitado.
+		 *            Index do nó sendo visitado.
 		 * @param parent
 		 *            {@linkplain Node Nó} pai.
 		 * @param addToPath
-		 *            {@link Adjacencia} a ser mantida no grafo.
+		 *            Posição da aresta a ser mantida no grafo.
 		 */
-		private void reduceGraph(T v, Node parent, Adjacencia addToPath) {
-			Adjacencia a = reducedGraph.primeiroAdjacente(parent.vortex);
-			while (a != null) {
-				if (!a.equals(addToPath))
-					reducedGraph.removeAresta(a.origem(), a.destino());
-				a = reducedGraph.proximoAdjacente(a);
+		private void reduceGraph(int v, Node parent, int addToPath) {
+			GrafoCSR<T> g = reducedGraph.base();
+			for (int a = g.inicio(parent.vortex); a < g.fim(parent.vortex); a++) {
+				if (a != addToPath)
+					reducedGraph.removeAresta(a);
 			}
 
-			for (T e : reducedGraph.getVertices()) {
-				a = reducedGraph.primeiroAdjacente(e);
-				while (a != null) {
-					if (a.destino() == reducedGraph.getVertices().indexOf(v))
-						if (!a.equals(addToPath))
-							reducedGraph.removeAresta(a.origem(), a.destino());
-					a = reducedGraph.proximoAdjacente(a);
-				}
+			for (int i = g.inicioEntrada(v); i < g.fimEntrada(v); i++) {
+				int a = g.arestaEntrada(i);
+				if (a != addToPath)
+					reducedGraph.removeAresta(a);
 			}
 		}
 
@@ -296,50 +1015,90 @@ public class PCVBranchAndBound<T> {
 		 * Verifica se o nó é factível, ou seja, é possível sair do nó inicial passar
 		 * por todos os nós e voltar ao inicial, ou seja, não é disjunto. Para isso é
 		 * usada a estrutura de dados Union Find (a.k.a. disjoint-set).
+		 * <p>
+		 * As arestas do caminho, que já ligam todos os vértices visitados, são unidas
+		 * primeiro, e a verificação termina assim que restar um único grupo. O Union
+		 * Find da thread é reaproveitado, desfazendo as uniões ao final em tempo
+		 * proporcional à quantidade delas, ao invés de alocar um novo por nó.
+		 * </p>
 		 * 
 		 * @return true se o grafo for factível.
 		 * @see UnionFind
 		 */
 		private boolean checkFeasibility() {
-			UnionFind uf = new UnionFind(reducedGraph.size());
-			for (T e : reducedGraph.getVertices()) {
-				Adjacencia a = reducedGraph.primeiroAdjacente(e);
-				while (a != null) {
-					uf.union(a.origem(), a.destino());
-					a = reducedGraph.proximoAdjacente(a);
+			GrafoCSR<T> g = reducedGraph.base();
+			UnionFind uf = feasibilitySets.get();
+			int mark = uf.marcar();
+			try {
+				for (int a : path) {
+					if (reducedGraph.ativa(a))
+						uf.union(g.origem(a), g.destino(a));
 				}
-
+				for (int a = 0; a < g.numeroArestas() && uf.quantidadeGrupos() > 1; a++) {
+					if (reducedGraph.ativa(a))
+						uf.union(g.origem(a), g.destino(a));
+				}
+				return uf.quantidadeGrupos() == 1;
+			} finally {
+				uf.desfazer(mark);
 			}
-			return uf.quantidadeGrupos() == 1;
 		}
 
 		/**
 		 * Calcula o custo estimado do grafo reduzido do nó (lower bound).
 		 * <p>
-		 * Para isso é gerada a 1-Tree mínima do grafo reduzido e é somado o pesos de
-		 * todas as arestas da 1-Tree gerada.
+		 * Com {@link BoundType#ONE_TREE} é gerada a 1-Tree mínima do grafo reduzido e
+		 * é somado o pesos de todas as arestas da 1-Tree gerada. Com
+		 * {@link BoundType#HELD_KARP} é usado o {@linkplain #heldKarpBound() limite de
+		 * Held-Karp}.
 		 * </p>
 		 * 
 		 * @return custo estimado.
-		 * @see Grafo#executarOneTree(int)
-		 * @see OneTree
+		 * @see GrafoReduzido#custoOneTree(int)
 		 */
 		private double calculateEstimatedCost() {
-			Adjacencia a;
-			// estimar custo usando 1-Tree (lower bound)
 			if (estimatedCost == -1) {
-				estimatedCost = 0;
-				Grafo<T> oneTree = reducedGraph.executarOneTree(0);
-				for (T e : reducedGraph.getVertices()) {
-					a = oneTree.primeiroAdjacente(e);
-					while (a != null) {
-						estimatedCost += a.peso();
-						a = oneTree.proximoAdjacente(a);
-					}
-				}
+				if (boundType == BoundType.HELD_KARP)
+					estimatedCost = heldKarpBound();
+				else
+					// estimar custo usando 1-Tree (lower bound)
+					estimatedCost = reducedGraph.custoOneTree(0);
 			}
 			return estimatedCost;
 		}
+
+		/**
+		 * Calcula o custo do caminho percorrido somado ao limite de Held-Karp de um
+		 * caminho que sai do nó atual, passa por todas as cidades não visitadas e volta
+		 * ao nó inicial. Nas folhas o custo é o do próprio circuito.
+		 * 
+		 * @return custo estimado.
+		 * @see LimiteHeldKarp#caminho(double[], int, int[], int, int, int, double[],
+		 *      int, double)
+		 */
+		private double heldKarpBound() {
+			int n = reducedGraph.size();
+			if (isLeaf())
+				return pathCost + distances[vortex * n];
+
+			int[] subset = new int[n];
+			int k = 0;
+			for (int v = 0; v < n; v++)
+				if (!visited[v] || v == vortex || v == 0)
+					subset[k++] = v;
+
+			int iterations = level == 0 ? ROOT_HELD_KARP_ITERATIONS : HELD_KARP_ITERATIONS;
+			penalties = penalties.clone();
+			double upperBound = bestSolution < Double.MAX_VALUE ? bestSolution - pathCost : Double.MAX_VALUE;
+			double bound = LimiteHeldKarp.caminho(distances, n, subset, k, vortex, 0, penalties, iterations,
+					upperBound);
+			if (bound >= Double.MAX_VALUE)
+				return Double.MAX_VALUE;
+			bound = pathCost + bound;
+			bound -= BOUND_TOLERANCE * (1 + Math.abs(bound));
+			// o limite do pai também vale para o filho
+			return Math.max(bound, parentCost);
+		}
 	}
 	
 
@@ -0,0 +1,282 @@
+package branch_and_bound;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import utils.UnionFind;
+
+/**
+ * Heurísticas construtivas e de busca local para o problema do caixeiro
+ * viajante, usadas para obter rapidamente um circuito inicial cujo custo serve
+ * de limite superior para o Branch and Bound.
+ * <p>
+ * Os circuitos são vetores com os indexes dos vértices na ordem em que são
+ * visitados, começando pelo vértice 0 e sem repeti-lo no final. As distâncias
+ * são dadas por uma matriz n x n, com {@link Double#MAX_VALUE} onde não há
+ * aresta, e podem ser assimétricas.
+ * </p>
+ * 
+ * @author Wallace Manzano
+ *
+ */
+final class TourHeuristics {
+
+	private TourHeuristics() {
+	}
+
+	/**
+	 * Gera o melhor circuito entre as heurísticas do vizinho mais próximo, da
+	 * aresta gulosa e da arvore geradora mínima duplicada, cada uma melhorada pelo
+	 * {@linkplain #twoOpt(double[], int, int[]) 2-opt}.
+	 * 
+	 * @param d
+	 *            matriz de distâncias.
+	 * @param n
+	 *            quantidade de vértices.
+	 * @return melhor circuito encontrado, ou {@code null} caso nenhuma heurística
+	 *         encontre um circuito.
+	 */
+	static int[] bestTour(double[] d, int n) {
+		int[] best = null;
+		double bestCost = Double.MAX_VALUE;
+		for (int[] tour : new int[][] { nearestNeighbor(d, n), greedyEdge(d, n), doubleTree(d, n) }) {
+			if (tour == null)
+				continue;
+			twoOpt(d, n, tour);
+			double c = cost(d, n, tour);
+			if (c < bestCost) {
+				bestCost = c;
+				best = tour;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Calcula o custo de um circuito.
+	 * 
+	 * @param d
+	 *            matriz de distâncias.
+	 * @param n
+	 *            quantidade de vértices.
+	 * @param tour
+	 *            circuito.
+	 * @return custo do circuito, ou {@link Double#MAX_VALUE} caso falte alguma
+	 *         aresta.
+	 */
+	static double cost(double[] d, int n, int[] tour) {
+		double c = 0;
+		for (int i = 0; i < n; i++) {
+			double w = d[tour[i] * n + tour[(i + 1) % n]];
+			if (w >= Double.MAX_VALUE)
+				return Double.MAX_VALUE;
+			c += w;
+		}
+		return c;
+	}
+
+	/**
+	 * Circuito que parte do vértice 0 e sempre segue para o vértice não visitado
+	 * mais próximo.
+	 * 
+	 * @param d
+	 *            matriz de distâncias.
+	 * @param n
+	 *            quantidade de vértices.
+	 * @return circuito, ou {@code null} caso fique sem vizinhos não visitados.
+	 */
+	static int[] nearestNeighbor(double[] d, int n) {
+		int[] tour = new int[n];
+		boolean[] visited = new boolean[n];
+		visited[0] = true;
+		for (int i = 1; i < n; i++) {
+			int u = tour[i - 1];
+			int next = -1;
+			for (int v = 0; v < n; v++)
+				if (!visited[v] && d[u * n + v] < Double.MAX_VALUE && (next == -1 || d[u * n + v] < d[u * n + next]))
+					next = v;
+			if (next == -1)
+				return null;
+			visited[next] = true;
+			tour[i] = next;
+		}
+		return tour;
+	}
+
+	/**
+	 * Circuito formado escolhendo as arestas em ordem crescente de peso, desde que
+	 * a origem ainda não tenha aresta de saída, o destino ainda não tenha aresta de
+	 * entrada e a aresta não feche um ciclo antes de passar por todos os vértices.
+	 * 
+	 * @param d
+	 *            matriz de distâncias.
+	 * @param n
+	 *            quantidade de vértices.
+	 * @return circuito, ou {@code null} caso as arestas escolhidas não formem um
+	 *         caminho por todos os vértices.
+	 */
+	static int[] greedyEdge(final double[] d, int n) {
+		if (n == 1)
+			return new int[] { 0 };
+		Integer[] edges = new Integer[n * n];
+		int m = 0;
+		for (int i = 0; i < n * n; i++)
+			if (i / n != i % n && d[i] < Double.MAX_VALUE)
+				edges[m++] = i;
+		Arrays.sort(edges, 0, m, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(d[a], d[b]);
+			}
+		});
+
+		int[] next = new int[n];
+		boolean[] hasPrevious = new boolean[n];
+		Arrays.fill(next, -1);
+		UnionFind fragments = new UnionFind(n);
+		int chosen = 0;
+		for (int i = 0; i < m && chosen < n - 1; i++) {
+			int u = edges[i] / n, v = edges[i] % n;
+			if (next[u] != -1 || hasPrevious[v] || fragments.find(u) == fragments.find(v))
+				continue;
+			next[u] = v;
+			hasPrevious[v] = true;
+			fragments.union(u, v);
+			chosen++;
+		}
+		if (chosen < n - 1)
+			return null;
+
+		// o caminho começa no único vértice sem aresta de entrada
+		int start = 0;
+		while (hasPrevious[start])
+			start++;
+		int[] path = new int[n];
+		for (int i = 0, v = start; i < n; i++, v = next[v])
+			path[i] = v;
+		return rotate(path, n);
+	}
+
+	/**
+	 * Circuito obtido pela ordem de visita em pré-ordem da arvore geradora mínima,
+	 * equivalente a percorrer a arvore com as arestas duplicadas pulando os
+	 * vértices repetidos.
+	 * 
+	 * @param d
+	 *            matriz de distâncias.
+	 * @param n
+	 *            quantidade de vértices.
+	 * @return circuito, ou {@code null} caso o grafo seja desconexo.
+	 */
+	static int[] doubleTree(double[] d, int n) {
+		double[] key = new double[n];
+		int[] parent = new int[n];
+		boolean[] inTree = new boolean[n];
+		Arrays.fill(key, Double.MAX_VALUE);
+		Arrays.fill(parent, -1);
+		key[0] = 0;
+		int[] childCount = new int[n];
+		for (int step = 0; step < n; step++) {
+			int u = -1;
+			for (int v = 0; v < n; v++)
+				if (!inTree[v] && (u == -1 || key[v] < key[u]))
+					u = v;
+			if (key[u] >= Double.MAX_VALUE)
+				return null;
+			inTree[u] = true;
+			if (parent[u] != -1)
+				childCount[parent[u]]++;
+			for (int v = 0; v < n; v++) {
+				double w = Math.min(d[u * n + v], d[v * n + u]);
+				if (!inTree[v] && w < key[v]) {
+					key[v] = w;
+					parent[v] = u;
+				}
+			}
+		}
+
+		// filhos de cada vértice em vetores contíguos
+		int[] first = new int[n + 1];
+		for (int v = 0; v < n; v++)
+			first[v + 1] = first[v] + childCount[v];
+		int[] children = new int[n];
+		int[] fill = Arrays.copyOf(first, n);
+		for (int v = 1; v < n; v++)
+			if (parent[v] != -1)
+				children[fill[parent[v]]++] = v;
+
+		int[] tour = new int[n];
+		int[] stack = new int[n];
+		int top = 0, size = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int u = stack[--top];
+			tour[size++] = u;
+			for (int i = first[u + 1] - 1; i >= first[u]; i--)
+				stack[top++] = children[i];
+		}
+		return tour;
+	}
+
+	/**
+	 * Melhora o circuito invertendo trechos enquanto alguma inversão diminuir o
+	 * custo (2-opt). O custo dos trechos invertidos é calculado nos dois sentidos,
+	 * então a busca também é válida para distâncias assimétricas. O vértice 0
+	 * permanece na primeira posição.
+	 * 
+	 * @param d
+	 *            matriz de distâncias.
+	 * @param n
+	 *            quantidade de vértices.
+	 * @param tour
+	 *            circuito a ser melhorado, modificado no próprio vetor.
+	 */
+	static void twoOpt(double[] d, int n, int[] tour) {
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			for (int i = 0; i < n - 2; i++) {
+				int a = tour[i], b = tour[i + 1];
+				double ab = d[a * n + b];
+				// custo do trecho b..c nos dois sentidos
+				double forward = 0, backward = 0;
+				for (int j = i + 2; j < n; j++) {
+					int c = tour[j], e = tour[(j + 1) % n];
+					forward += d[tour[j - 1] * n + c];
+					backward += d[c * n + tour[j - 1]];
+					double before = ab + forward + d[c * n + e];
+					double after = d[a * n + c] + backward + d[b * n + e];
+					double tolerance = before < Double.MAX_VALUE ? 1e-9 * (1 + before) : 0;
+					if (after < before - tolerance) {
+						reverse(tour, i + 1, j);
+						improved = true;
+						break;
+					}
+				}
+				if (improved)
+					break;
+			}
+		}
+	}
+
+	private static void reverse(int[] tour, int from, int to) {
+		while (from < to) {
+			int t = tour[from];
+			tour[from++] = tour[to];
+			tour[to--] = t;
+		}
+	}
+
+	/**
+	 * Rotaciona o circuito para que comece pelo vértice 0.
+	 */
+	private static int[] rotate(int[] path, int n) {
+		int[] tour = new int[n];
+		int offset = 0;
+		while (path[offset] != 0)
+			offset++;
+		for (int i = 0; i < n; i++)
+			tour[i] = path[(offset + i) % n];
+		return tour;
+	}
+}
@@ -5,6 +5,7 @@ import static aestrela.PCVAEstrela.aEstrela;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.util.List;
 import java.util.Random;
 
 import aestrela.Estado;
@@ -17,7 +18,7 @@ public class Experimento {
 		Integer D_INICIAL = 5;
 		Integer d = D_INICIAL; // define o n�mero de cidades inicial
 		double media1, media2;
-		Grafo<Integer> g = new Grafo<Integer>(), g2;
+		Grafo<Integer> g = new Grafo<Integer>(D_INICIAL, false, true), g2;
 		String file;
 		System.out.println("Executando...");
 		Integer a = 0;
@@ -61,9 +62,10 @@ public class Experimento {
 
 					w.write("Caminho obtido -> ");
 
-					for (int i = 0; i < caminho.cidadesVisitadas.size(); i++) {
-						w.write(Integer.toString(caminho.cidadesVisitadas.get(i)));
-						if (i != caminho.cidadesVisitadas.size() - 1) {
+					List<Integer> cidadesVisitadas = caminho.getCidadesVisitadas();
+					for (int i = 0; i < cidadesVisitadas.size(); i++) {
+						w.write(Integer.toString(cidadesVisitadas.get(i)));
+						if (i != cidadesVisitadas.size() - 1) {
 							w.write(":");
 						}
 					}
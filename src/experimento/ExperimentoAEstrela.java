@@ -0,0 +1,186 @@
+package experimento;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import aestrela.CacheHeuristica;
+import aestrela.Estado;
+import aestrela.PCVAEstrela;
+import aestrela.PCVAEstrela.Heuristica;
+import aestrela.PCVAEstrela.Modo;
+import held_karp.PCVHeldKarp;
+import utils.Grafo;
+
+/**
+ * Confere os circuitos de todos os modos do A* com os do {@link PCVHeldKarp}
+ * em grafos esparsos, em que faltam arestas entre algumas cidades.
+ * <p>
+ * Primeiro cada modo é executado em um caminho de quatro cidades, que não tem
+ * circuito, e deve retornar {@code null}, e em um ciclo de quatro cidades com
+ * uma segunda aresta mais pesada entre duas delas. Depois são gerados grafos
+ * não direcionados aleatórios, com cada aresta presente com uma probabilidade
+ * também sorteada e algumas repetidas com peso maior, e para cada modo e
+ * heurística o custo do circuito retornado é conferido com o custo ótimo, assim
+ * como a ausência de circuito. O custo do circuito é recalculado pelas arestas
+ * de menor peso do grafo e comparado com o valor g do estado final. O ARA* é
+ * conferido da mesma forma, junto com cada circuito que ele publica, e o HDA*
+ * também com duas, três e quatro threads.
+ * </p>
+ * <p>
+ * Uso: {@code ExperimentoAEstrela [instâncias]}
+ * </p>
+ */
+public class ExperimentoAEstrela {
+	private static final int MINIMO_CIDADES = 3;
+	private static final int MAXIMO_CIDADES = 11;
+	// quantidades de threads do HDA*, além da padrão do modo HDA_ESTRELA
+	private static final int[] THREADS_HDA = { 2, 3, 4 };
+	// prazo do ARA*, longo o bastante para que ele sempre prove o circuito ótimo
+	private static final long PRAZO_ARA = TimeUnit.MINUTES.toMillis(1);
+
+	public static void main(String[] args) {
+		int instancias = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+
+		// caminho 1-2-3-4, sem a aresta que fecharia o circuito
+		double[][] pesos = new double[4][4];
+		for (int i = 0; i + 1 < 4; i++)
+			pesos[i][i + 1] = pesos[i + 1][i] = 1;
+		for (boolean denso : new boolean[] { false, true })
+			conferir(pesos, null, denso, Double.NaN);
+		System.out.println("Grafo sem circuito: ok");
+
+		// ciclo 1-2-3-4 de peso 1, com uma segunda aresta de peso 10 entre 1 e 2
+		// inserida depois da primeira
+		pesos = new double[4][4];
+		double[][] repetidas = new double[4][4];
+		for (int i = 0; i < 4; i++)
+			pesos[i][(i + 1) % 4] = pesos[(i + 1) % 4][i] = 1;
+		repetidas[0][1] = 10;
+		for (boolean denso : new boolean[] { false, true })
+			conferir(pesos, repetidas, denso, 4);
+		System.out.println("Arestas paralelas: ok");
+
+		Random r = new Random(42);
+		int semCircuito = 0;
+		for (int i = 0; i < instancias; i++) {
+			int n = MINIMO_CIDADES + r.nextInt(MAXIMO_CIDADES - MINIMO_CIDADES + 1);
+			double densidade = 0.3 + 0.7 * r.nextDouble();
+			pesos = new double[n][n];
+			repetidas = new double[n][n];
+			for (int u = 0; u < n; u++) {
+				for (int v = u + 1; v < n; v++) {
+					if (r.nextDouble() < densidade)
+						pesos[u][v] = pesos[v][u] = 1 + r.nextInt(99);
+					if (pesos[u][v] > 0 && r.nextInt(5) == 0)
+						repetidas[u][v] = pesos[u][v] + 1 + r.nextInt(50);
+				}
+			}
+
+			PCVHeldKarp<Integer> heldKarp = new PCVHeldKarp<Integer>(grafo(pesos, repetidas, false));
+			double otimo = heldKarp.resolver() == null ? Double.NaN : heldKarp.getCusto();
+			if (Double.isNaN(otimo))
+				semCircuito++;
+			conferir(pesos, repetidas, r.nextBoolean(), otimo);
+		}
+		System.out.println("Grafos esparsos: ok (" + instancias + " instâncias, " + semCircuito + " sem circuito)");
+	}
+
+	/**
+	 * Cria o grafo com as arestas de peso positivo da matriz, com as cidades
+	 * numeradas a partir de 1, e depois delas as arestas repetidas.
+	 */
+	private static Grafo<Integer> grafo(double[][] pesos, double[][] repetidas, boolean denso) {
+		int n = pesos.length;
+		Grafo<Integer> g = new Grafo<Integer>(n, false, denso);
+		for (int v = 1; v <= n; v++)
+			g.addVertice(v);
+		for (int u = 0; u < n; u++)
+			for (int v = u + 1; v < n; v++)
+				if (pesos[u][v] > 0)
+					g.addAresta(u + 1, v + 1, pesos[u][v]);
+		if (repetidas != null)
+			for (int u = 0; u < n; u++)
+				for (int v = u + 1; v < n; v++)
+					if (repetidas[u][v] > 0)
+						g.addAresta(u + 1, v + 1, repetidas[u][v]);
+		return g;
+	}
+
+	/**
+	 * Executa todos os modos com as duas heurísticas e confere os circuitos.
+	 *
+	 * @param repetidas
+	 *            pesos das segundas arestas entre as cidades, ou {@code null}.
+	 * @param otimo
+	 *            custo do circuito ótimo, ou {@code NaN} caso não exista circuito.
+	 * @throws IllegalStateException
+	 *             caso algum modo retorne um circuito diferente do esperado.
+	 */
+	private static void conferir(double[][] pesos, double[][] repetidas, boolean denso, double otimo) {
+		for (Heuristica tipo : Heuristica.values()) {
+			for (Modo modo : Modo.values()) {
+				Estado fim = PCVAEstrela.aEstrela(grafo(pesos, repetidas, denso), tipo, modo,
+						PCVAEstrela.LIMITE_ESTADOS_PADRAO, new CacheHeuristica());
+				conferir(pesos, fim, otimo, modo + " com " + tipo);
+			}
+			for (int threads : THREADS_HDA) {
+				Estado fim = PCVAEstrela.hdaEstrela(grafo(pesos, repetidas, denso), tipo, threads,
+						new CacheHeuristica());
+				conferir(pesos, fim, otimo, "HDA* com " + threads + " threads e " + tipo);
+			}
+
+			final double[][] p = pesos;
+			final String descricao = "ARA* com " + tipo;
+			Estado fim = PCVAEstrela.araEstrela(grafo(pesos, repetidas, denso), tipo, 3, 1, PRAZO_ARA,
+					new PCVAEstrela.OuvinteCircuito() {
+						@Override
+						public void circuitoEncontrado(List<Integer> circuito, double custo, double limite) {
+							if (custo != custo(p, circuito, descricao))
+								throw new IllegalStateException(descricao + " publicou o circuito " + circuito
+										+ " com custo " + custo);
+						}
+					});
+			conferir(pesos, fim, otimo, descricao);
+		}
+	}
+
+	private static void conferir(double[][] pesos, Estado fim, double otimo, String descricao) {
+		int n = pesos.length;
+		if (fim == null) {
+			if (!Double.isNaN(otimo))
+				throw new IllegalStateException(descricao + " não encontrou o circuito de custo " + otimo
+						+ " com " + n + " cidades");
+			return;
+		}
+		if (Double.isNaN(otimo))
+			throw new IllegalStateException(descricao + " retornou um circuito em um grafo sem circuito: "
+					+ fim.getCidadesVisitadas());
+
+		List<Integer> circuito = fim.getCidadesVisitadas();
+		double custo = custo(pesos, circuito, descricao);
+		if (custo != otimo || fim.getValorG() != custo)
+			throw new IllegalStateException(descricao + " retornou o circuito " + circuito + " de custo " + custo
+					+ " e valor g " + fim.getValorG() + ", mas o ótimo é " + otimo);
+	}
+
+	/**
+	 * Soma as arestas de menor peso do circuito.
+	 * 
+	 * @throws IllegalStateException
+	 *             caso o caminho não seja um circuito pelas arestas do grafo.
+	 */
+	private static double custo(double[][] pesos, List<Integer> circuito, String descricao) {
+		int n = pesos.length;
+		if (circuito.size() != n + 1 || circuito.get(0) != 1 || circuito.get(n) != 1)
+			throw new IllegalStateException(descricao + " retornou um caminho que não é circuito: " + circuito);
+		double custo = 0;
+		for (int i = 0; i < n; i++) {
+			double peso = pesos[circuito.get(i) - 1][circuito.get(i + 1) - 1];
+			if (peso <= 0)
+				throw new IllegalStateException(descricao + " usou uma aresta inexistente: " + circuito);
+			custo += peso;
+		}
+		return custo;
+	}
+}
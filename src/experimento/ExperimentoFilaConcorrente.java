@@ -0,0 +1,158 @@
+package experimento;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import utils.ComparatorDouble;
+import utils.FilaMultipla;
+import utils.PriorityQueue;
+
+/**
+ * Compara a vazão da {@link FilaMultipla} com a de uma {@link PriorityQueue}
+ * protegida por uma única trava, com várias threads inserindo e removendo ao
+ * mesmo tempo, como em uma fronteira de busca compartilhada.
+ * <p>
+ * Cada thread alterna entre inserir um elemento de chave aleatória e remover um
+ * elemento, depois de a fila ser preenchida com alguns elementos. A
+ * {@link FilaMultipla} também é medida com as operações em lote. O resultado é
+ * a quantidade de operações por milissegundo.
+ * </p>
+ * <p>
+ * Uso: {@code ExperimentoFilaConcorrente [operações por thread] [threads...]}
+ * </p>
+ */
+public class ExperimentoFilaConcorrente {
+	private static final int ELEMENTOS_INICIAIS = 10000;
+	private static final int LOTE = 16;
+
+	public static void main(String[] args) {
+		int operacoes = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int[] threads = { 1, 2, 4, 8 };
+		if (args.length > 1) {
+			threads = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				threads[i - 1] = Integer.parseInt(args[i]);
+		}
+
+		System.out.println("Processadores: " + Runtime.getRuntime().availableProcessors());
+		System.out.println("threads\tPriorityQueue travada\tFilaMultipla\tFilaMultipla em lote");
+		for (int t : threads) {
+			// a primeira rodada de cada fila só aquece a JVM
+			medir(new FilaTravada(), t, operacoes / 10);
+			double travada = medir(new FilaTravada(), t, operacoes);
+			medir(new Multipla(t, 1), t, operacoes / 10);
+			double multipla = medir(new Multipla(t, 1), t, operacoes);
+			double lote = medir(new Multipla(t, LOTE), t, operacoes);
+			System.out.printf("%d\t%.0f\t%.0f\t%.0f%n", t, travada, multipla, lote);
+		}
+	}
+
+	/**
+	 * Executa a carga de trabalho em todas as threads ao mesmo tempo.
+	 * 
+	 * @return operações por milissegundo.
+	 */
+	private static double medir(final Fronteira fila, int threads, final int operacoes) {
+		Random r = new Random(42);
+		for (int i = 0; i < ELEMENTOS_INICIAIS; i++)
+			fila.inserir(r.nextDouble());
+
+		Thread[] trabalhadores = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			trabalhadores[i] = new Thread() {
+				@Override
+				public void run() {
+					fila.executar(operacoes);
+				}
+			};
+		}
+		long inicio = System.nanoTime();
+		for (Thread t : trabalhadores)
+			t.start();
+		try {
+			for (Thread t : trabalhadores)
+				t.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		double ms = (System.nanoTime() - inicio) / 1e6;
+		return (double) operacoes * threads / ms;
+	}
+
+	/**
+	 * Fila sendo medida, com a carga de trabalho de uma thread.
+	 */
+	private static abstract class Fronteira {
+		abstract void inserir(double chave);
+
+		abstract void executar(int operacoes);
+	}
+
+	private static final class FilaTravada extends Fronteira {
+		private final PriorityQueue<double[]> fila = new PriorityQueue<>(new ComparatorDouble<double[]>() {
+			@Override
+			public double compare(double[] a, double[] b) {
+				return a[0] - b[0];
+			}
+		});
+
+		@Override
+		synchronized void inserir(double chave) {
+			fila.add(new double[] { chave });
+		}
+
+		private synchronized double[] remover() {
+			return fila.poll();
+		}
+
+		@Override
+		void executar(int operacoes) {
+			ThreadLocalRandom r = ThreadLocalRandom.current();
+			for (int i = 0; i < operacoes; i += 2) {
+				inserir(r.nextDouble());
+				remover();
+			}
+		}
+	}
+
+	private static final class Multipla extends Fronteira {
+		private final FilaMultipla<double[]> fila;
+		private final int lote;
+
+		private Multipla(int threads, int lote) {
+			fila = new FilaMultipla<>(threads);
+			this.lote = lote;
+		}
+
+		@Override
+		void inserir(double chave) {
+			fila.inserir(chave, new double[] { chave });
+		}
+
+		@Override
+		void executar(int operacoes) {
+			ThreadLocalRandom r = ThreadLocalRandom.current();
+			if (lote == 1) {
+				for (int i = 0; i < operacoes; i += 2) {
+					inserir(r.nextDouble());
+					fila.removerMinimo();
+				}
+				return;
+			}
+			double[] chaves = new double[lote];
+			double[][] valores = new double[lote][];
+			List<double[]> removidos = new ArrayList<>(lote);
+			for (int i = 0; i < operacoes; i += 2 * lote) {
+				for (int j = 0; j < lote; j++) {
+					chaves[j] = r.nextDouble();
+					valores[j] = new double[] { chaves[j] };
+				}
+				fila.inserirTodos(chaves, valores, lote);
+				removidos.clear();
+				fila.removerVarios(lote, removidos);
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package experimento;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import utils.UnionFind;
+import utils.UnionFindConcorrente;
+
+/**
+ * Teste de estresse e comparação de vazão do {@link UnionFindConcorrente} com um
+ * {@link UnionFind} protegido por uma única trava.
+ * <p>
+ * No teste de estresse várias threads unem ao mesmo tempo partes de uma lista
+ * de pares aleatórios, enquanto consultam {@code find} e {@code mesmoGrupo}. Ao
+ * final os conjuntos, a quantidade de grupos e a quantidade de uniões
+ * bem-sucedidas são conferidos com os do {@link UnionFind} sequencial. Na
+ * comparação de vazão o resultado é a quantidade de uniões por milissegundo.
+ * </p>
+ * <p>
+ * Uso: {@code ExperimentoUnionFindConcorrente [elementos] [threads...]}
+ * </p>
+ */
+public class ExperimentoUnionFindConcorrente {
+	private static final int RODADAS_ESTRESSE = 20;
+
+	public static void main(String[] args) throws InterruptedException {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int[] threads = { 1, 2, 4, 8 };
+		if (args.length > 1) {
+			threads = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				threads[i - 1] = Integer.parseInt(args[i]);
+		}
+		System.out.println("Processadores: " + Runtime.getRuntime().availableProcessors());
+
+		Random r = new Random(42);
+		for (int rodada = 0; rodada < RODADAS_ESTRESSE; rodada++) {
+			int tamanho = 1 + r.nextInt(2000);
+			int[] pares = paresAleatorios(r, tamanho, r.nextInt(2 * tamanho + 1));
+			for (int t : threads)
+				estresse(tamanho, pares, t);
+		}
+		System.out.println("Teste de estresse: ok");
+
+		int[] pares = paresAleatorios(r, n, n);
+		System.out.println("threads\tUnionFind travado\tUnionFindConcorrente");
+		for (int t : threads) {
+			// a primeira rodada de cada estrutura só aquece a JVM
+			medir(new Travado(n), pares, t);
+			double travado = medir(new Travado(n), pares, t);
+			medir(new Concorrente(n), pares, t);
+			double concorrente = medir(new Concorrente(n), pares, t);
+			System.out.printf("%d\t%.0f\t%.0f%n", t, travado, concorrente);
+		}
+	}
+
+	private static int[] paresAleatorios(Random r, int n, int quantidade) {
+		int[] pares = new int[2 * quantidade];
+		for (int i = 0; i < pares.length; i++)
+			pares[i] = r.nextInt(n);
+		return pares;
+	}
+
+	/**
+	 * Une os pares em paralelo e confere o resultado com o {@link UnionFind}
+	 * sequencial.
+	 * 
+	 * @throws IllegalStateException
+	 *             caso os conjuntos sejam diferentes.
+	 */
+	private static void estresse(int n, final int[] pares, int threads) throws InterruptedException {
+		final UnionFindConcorrente uf = new UnionFindConcorrente(n);
+		final AtomicInteger unioes = new AtomicInteger();
+		executar(threads, pares.length / 2, new Trabalho() {
+			@Override
+			public void executar(int inicio, int fim) {
+				for (int i = inicio; i < fim; i++) {
+					int x = pares[2 * i], y = pares[2 * i + 1];
+					if (uf.union(x, y))
+						unioes.incrementAndGet();
+					if (!uf.mesmoGrupo(x, y))
+						throw new IllegalStateException("Elementos unidos em grupos diferentes");
+					uf.find(pares[2 * (fim - 1 - i + inicio)]);
+				}
+			}
+		});
+
+		UnionFind esperado = new UnionFind(n);
+		for (int i = 0; i < pares.length; i += 2)
+			esperado.union(pares[i], pares[i + 1]);
+		if (uf.quantidadeGrupos() != esperado.quantidadeGrupos() || unioes.get() != n - esperado.quantidadeGrupos())
+			throw new IllegalStateException("Quantidade de grupos diferente com " + threads + " threads");
+		// os dois particionamentos são iguais se os representantes se correspondem
+		int[] correspondente = new int[n];
+		Arrays.fill(correspondente, -1);
+		for (int v = 0; v < n; v++) {
+			int a = esperado.find(v), b = uf.find(v);
+			if (correspondente[a] == -1)
+				correspondente[a] = b;
+			else if (correspondente[a] != b)
+				throw new IllegalStateException("Conjuntos diferentes com " + threads + " threads");
+		}
+	}
+
+	/**
+	 * Une os pares com as threads dividindo a lista.
+	 * 
+	 * @return uniões por milissegundo.
+	 */
+	private static double medir(final Conjuntos uf, final int[] pares, int threads) throws InterruptedException {
+		long inicio = System.nanoTime();
+		executar(threads, pares.length / 2, new Trabalho() {
+			@Override
+			public void executar(int inicio, int fim) {
+				for (int i = inicio; i < fim; i++)
+					uf.union(pares[2 * i], pares[2 * i + 1]);
+			}
+		});
+		double ms = (System.nanoTime() - inicio) / 1e6;
+		return pares.length / 2 / ms;
+	}
+
+	/**
+	 * Divide o intervalo de 0 a {@code quantidade} entre as threads e espera todas
+	 * terminarem, repassando a primeira exceção.
+	 */
+	private static void executar(int threads, int quantidade, final Trabalho trabalho) throws InterruptedException {
+		Thread[] trabalhadores = new Thread[threads];
+		final RuntimeException[] erro = new RuntimeException[1];
+		for (int t = 0; t < threads; t++) {
+			final int inicio = (int) ((long) quantidade * t / threads);
+			final int fim = (int) ((long) quantidade * (t + 1) / threads);
+			trabalhadores[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						trabalho.executar(inicio, fim);
+					} catch (RuntimeException e) {
+						synchronized (erro) {
+							erro[0] = e;
+						}
+					}
+				}
+			};
+		}
+		for (Thread t : trabalhadores)
+			t.start();
+		for (Thread t : trabalhadores)
+			t.join();
+		if (erro[0] != null)
+			throw erro[0];
+	}
+
+	private interface Trabalho {
+		void executar(int inicio, int fim);
+	}
+
+	private interface Conjuntos {
+		void union(int x, int y);
+	}
+
+	private static final class Travado implements Conjuntos {
+		private final UnionFind uf;
+
+		private Travado(int n) {
+			uf = new UnionFind(n);
+		}
+
+		@Override
+		public synchronized void union(int x, int y) {
+			uf.union(x, y);
+		}
+	}
+
+	private static final class Concorrente implements Conjuntos {
+		private final UnionFindConcorrente uf;
+
+		private Concorrente(int n) {
+			uf = new UnionFindConcorrente(n);
+		}
+
+		@Override
+		public void union(int x, int y) {
+			uf.union(x, y);
+		}
+	}
+}
@@ -0,0 +1,421 @@
+package held_karp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import utils.Grafo;
+import utils.GrafoCSR;
+
+/**
+ * Resolve o problema do caixeiro viajante de forma exata pela programação
+ * dinâmica de Held-Karp, em tempo O(2<sup>n</sup> n<sup>2</sup>) e memória
+ * O(2<sup>n</sup> n) independente dos pesos das arestas.
+ * <p>
+ * Para cada subconjunto S dos vértices diferentes do inicial e cada vértice j
+ * de S a tabela guarda o custo do menor caminho que sai do vértice inicial,
+ * passa por todos os vértices de S e termina em j:
+ * </p>
+ *
+ * <pre>
+ * C(S, j) = min { C(S - {j}, i) + d(i, j) : i em S - {j} }
+ * </pre>
+ * <p>
+ * Os subconjuntos, representados pelos bits dos vértices 1 a n - 1, são
+ * guardados na {@linkplain TabelaPD tabela} em camadas, uma para cada tamanho.
+ * Dentro da camada de tamanho k os subconjuntos seguem a ordem crescente dos
+ * bits, e cada um ocupa k posições, uma para cada vértice j de S em ordem
+ * crescente. Assim a tabela tem (n - 1) 2<sup>n - 2</sup> posições, cada
+ * camada é escrita em sequência e só lê a camada anterior, o que permite
+ * guardá-la em um {@linkplain TabelaPDMapeada arquivo mapeado} maior que a
+ * memória.
+ * </p>
+ * <p>
+ * Os subconjuntos de mesmo tamanho só dependem dos de tamanho anterior, então
+ * cada camada é dividida entre as threads de um {@link ForkJoinPool} pela
+ * ordem dos subconjuntos, e cada tarefa gera os seus subconjuntos a partir do
+ * primeiro, sem percorrer os das outras.
+ * </p>
+ * <p>
+ * O grafo pode ser direcionado, e as arestas ausentes são tratadas como de
+ * custo infinito.
+ * </p>
+ *
+ * Exemplo:
+ *
+ * <pre>
+ * PCVHeldKarp&lt;Integer&gt; hk = new PCVHeldKarp&lt;&gt;(g);
+ * List&lt;Integer&gt; circuito = hk.resolver();
+ * double custo = hk.getCusto();
+ * </pre>
+ *
+ * @author Wallace Alves Esteves Manzano
+ *
+ * @param <V>
+ *            Tipo do vértice
+ */
+public class PCVHeldKarp<V> {
+
+	/**
+	 * Quantidade máxima de vértices, para que os subconjuntos caibam em um
+	 * {@code int}.
+	 */
+	public static final int MAXIMO_VERTICES = 31;
+
+	// Quantidade de subconjuntos de uma camada abaixo da qual a tarefa não é
+	// dividida
+	private static final int LIMIAR_SEQUENCIAL = 1 << 10;
+
+	private final Grafo<V> grafo;
+	private int paralelismo = Runtime.getRuntime().availableProcessors();
+	private boolean foraDoHeap = false;
+	private File arquivoTabela = null;
+	private double custo = Double.MAX_VALUE;
+
+	// Dados do grafo sendo resolvido
+	private int m;
+	private double[] distancias;
+	private long[][] binomiais;
+	private long[] inicioCamada;
+	private TabelaPD tabela;
+
+	/**
+	 * Cria o resolvedor para um grafo.
+	 *
+	 * @param grafo
+	 *            {@link Grafo} com no máximo {@link #MAXIMO_VERTICES} vértices,
+	 *            cujo primeiro vértice é o início do circuito.
+	 */
+	public PCVHeldKarp(Grafo<V> grafo) {
+		this.grafo = grafo;
+	}
+
+	public int getParalelismo() {
+		return paralelismo;
+	}
+
+	/**
+	 * Define a quantidade de threads usadas no preenchimento de cada camada da
+	 * tabela.
+	 *
+	 * @param paralelismo
+	 *            quantidade de threads.
+	 * @throws IllegalArgumentException
+	 *             caso a quantidade seja menor que 1.
+	 */
+	public void setParalelismo(int paralelismo) {
+		if (paralelismo < 1)
+			throw new IllegalArgumentException();
+		this.paralelismo = paralelismo;
+	}
+
+	public boolean isForaDoHeap() {
+		return foraDoHeap;
+	}
+
+	/**
+	 * Define se a tabela é guardada fora do heap, em uma {@link TabelaPDDireta},
+	 * ao invés de uma {@link TabelaPDVetor}.
+	 *
+	 * @param foraDoHeap
+	 *            true para guardar a tabela fora do heap.
+	 */
+	public void setForaDoHeap(boolean foraDoHeap) {
+		this.foraDoHeap = foraDoHeap;
+	}
+
+	public File getArquivoTabela() {
+		return arquivoTabela;
+	}
+
+	/**
+	 * Define um arquivo para guardar a tabela em uma {@link TabelaPDMapeada}, que
+	 * tem preferência sobre a tabela {@linkplain #setForaDoHeap(boolean) fora do
+	 * heap}. O arquivo não é apagado ao final, e caso já contenha camadas
+	 * concluídas da mesma instância, como depois de uma falha, a execução continua
+	 * a partir delas.
+	 * 
+	 * @param arquivoTabela
+	 *            arquivo da tabela, ou {@code null} para guardá-la na memória.
+	 */
+	public void setArquivoTabela(File arquivoTabela) {
+		this.arquivoTabela = arquivoTabela;
+	}
+
+	/**
+	 * Retorna o custo do circuito encontrado pela última execução de
+	 * {@link #resolver()}.
+	 *
+	 * @return custo do circuito, ou {@link Double#MAX_VALUE} caso não exista.
+	 */
+	public double getCusto() {
+		return custo;
+	}
+
+	/**
+	 * Quantidade de posições da tabela para um grafo com n vértices.
+	 *
+	 * @param n
+	 *            quantidade de vértices.
+	 * @return tamanho da tabela.
+	 */
+	public static long tamanhoTabela(int n) {
+		return n < 2 ? 0 : (1L << (n - 2)) * (n - 1);
+	}
+
+	/**
+	 * Calcula o circuito de menor custo.
+	 *
+	 * @return vértices do circuito, em ordem, começando e terminando no primeiro
+	 *         vértice do grafo, ou {@code null} caso não exista circuito.
+	 * @throws IllegalArgumentException
+	 *             caso o grafo tenha mais que {@link #MAXIMO_VERTICES} vértices.
+	 * @throws UncheckedIOException
+	 *             caso o {@linkplain #setArquivoTabela(File) arquivo da tabela} não
+	 *             possa ser usado.
+	 */
+	public List<V> resolver() {
+		GrafoCSR<V> g = grafo.congelar();
+		int n = g.size();
+		if (n > MAXIMO_VERTICES)
+			throw new IllegalArgumentException("O Held-Karp suporta no máximo " + MAXIMO_VERTICES + " vértices");
+		custo = Double.MAX_VALUE;
+		if (n == 0)
+			return null;
+		List<V> vertices = g.getVertices();
+		List<V> circuito = new ArrayList<V>();
+		if (n == 1) {
+			custo = 0;
+			circuito.add(vertices.get(0));
+			circuito.add(vertices.get(0));
+			return circuito;
+		}
+
+		m = n - 1;
+		distancias = g.matrizDistancias();
+		binomiais = binomiais(m);
+		inicioCamada = new long[m + 2];
+		for (int k = 1; k <= m; k++)
+			inicioCamada[k + 1] = inicioCamada[k] + binomiais[m][k] * k;
+		tabela = criarTabela(n);
+		try {
+			preencher();
+			int[] caminho = reconstruir();
+			if (caminho == null)
+				return null;
+			circuito.add(vertices.get(0));
+			for (int v : caminho)
+				circuito.add(vertices.get(v));
+			circuito.add(vertices.get(0));
+			return circuito;
+		} finally {
+			if (tabela instanceof Closeable) {
+				try {
+					((Closeable) tabela).close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			tabela = null;
+			distancias = null;
+		}
+	}
+
+	private TabelaPD criarTabela(int n) {
+		if (arquivoTabela != null) {
+			// as distâncias ficam no arquivo, para não retomar a tabela de outra instância
+			try {
+				return new TabelaPDMapeada(arquivoTabela, tamanhoTabela(n), distancias);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return foraDoHeap ? new TabelaPDDireta(tamanhoTabela(n)) : new TabelaPDVetor(tamanhoTabela(n));
+	}
+
+	/**
+	 * Preenche a tabela camada por camada, em ordem crescente de tamanho dos
+	 * subconjuntos, a partir da primeira camada não concluída.
+	 */
+	private void preencher() {
+		int concluidas = tabela.camadasConcluidas();
+		if (concluidas < 1) {
+			for (int j = 1; j <= m; j++)
+				tabela.escrever(j - 1, distancias[j]);
+			tabela.concluirCamada(1);
+			concluidas = 1;
+		}
+		if (concluidas >= m)
+			return;
+
+		ForkJoinPool pool = paralelismo > 1 ? new ForkJoinPool(paralelismo) : null;
+		try {
+			for (int k = concluidas + 1; k <= m; k++) {
+				Camada camada = new Camada(k, 0, binomiais[m][k]);
+				if (pool == null)
+					camada.compute();
+				else
+					pool.invoke(camada);
+				tabela.concluirCamada(k);
+			}
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * Calcula C(S, j) para todos os vértices j de S, que tem k vértices e está na
+	 * posição {@code posicao} da sua camada.
+	 */
+	private void calcular(int s, int k, long posicao) {
+		int n = m + 1;
+		long escrita = inicioCamada[k] + posicao * k;
+		for (int bj = s; bj != 0; bj &= bj - 1) {
+			int j = Integer.numberOfTrailingZeros(bj) + 1;
+			int anterior = s & ~(1 << (j - 1));
+			// os vértices de S - {j} estão em posições consecutivas da camada anterior
+			long leitura = inicioCamada[k - 1] + posicao(anterior) * (k - 1);
+			double melhor = Double.MAX_VALUE;
+			for (int bi = anterior; bi != 0; bi &= bi - 1, leitura++) {
+				int i = Integer.numberOfTrailingZeros(bi) + 1;
+				double d = distancias[i * n + j];
+				if (d >= Double.MAX_VALUE)
+					continue;
+				double c = tabela.ler(leitura);
+				if (c < Double.MAX_VALUE && c + d < melhor)
+					melhor = c + d;
+			}
+			tabela.escrever(escrita++, melhor);
+		}
+	}
+
+	/**
+	 * Encontra o melhor último vértice do circuito e volta pela tabela, em cada
+	 * passo escolhendo o vértice anterior cujo custo gerou o valor guardado.
+	 *
+	 * @return vértices do circuito sem o inicial, ou {@code null} caso não exista
+	 *         circuito.
+	 */
+	private int[] reconstruir() {
+		int n = m + 1;
+		int s = (int) ((1L << m) - 1);
+		int ultimo = -1;
+		for (int j = 1; j <= m; j++) {
+			double c = tabela.ler(indice(s, j));
+			double d = distancias[j * n];
+			if (c < Double.MAX_VALUE && d < Double.MAX_VALUE && c + d < custo) {
+				custo = c + d;
+				ultimo = j;
+			}
+		}
+		if (ultimo == -1)
+			return null;
+
+		int[] caminho = new int[m];
+		for (int p = m - 1; p > 0; p--) {
+			caminho[p] = ultimo;
+			double valor = tabela.ler(indice(s, ultimo));
+			s &= ~(1 << (ultimo - 1));
+			for (int bi = s; bi != 0; bi &= bi - 1) {
+				int i = Integer.numberOfTrailingZeros(bi) + 1;
+				double d = distancias[i * n + ultimo];
+				if (d < Double.MAX_VALUE && tabela.ler(indice(s, i)) + d == valor) {
+					ultimo = i;
+					break;
+				}
+			}
+		}
+		caminho[0] = ultimo;
+		return caminho;
+	}
+
+	/**
+	 * Posição de C(S, j) na tabela.
+	 */
+	private long indice(int s, int j) {
+		int k = Integer.bitCount(s);
+		return inicioCamada[k] + posicao(s) * k + Integer.bitCount(s & ((1 << (j - 1)) - 1));
+	}
+
+	/**
+	 * Posição de um subconjunto na ordem crescente dos subconjuntos de mesmo
+	 * tamanho, pelo sistema de numeração combinatório.
+	 */
+	private long posicao(int s) {
+		long posicao = 0;
+		int i = 1;
+		for (int b = s; b != 0; b &= b - 1, i++)
+			posicao += binomiais[Integer.numberOfTrailingZeros(b)][i];
+		return posicao;
+	}
+
+	/**
+	 * Primeiro subconjunto de tamanho k na ordem crescente dos bits cuja posição
+	 * nessa ordem é {@code posicao}, pelo sistema de numeração combinatório.
+	 */
+	private int subconjunto(int k, long posicao) {
+		int s = 0;
+		for (int i = k; i >= 1; i--) {
+			int c = i - 1;
+			while (c + 1 < m && binomiais[c + 1][i] <= posicao)
+				c++;
+			s |= 1 << c;
+			posicao -= binomiais[c][i];
+		}
+		return s;
+	}
+
+	private static long[][] binomiais(int m) {
+		long[][] b = new long[m + 1][m + 1];
+		for (int i = 0; i <= m; i++) {
+			b[i][0] = 1;
+			for (int j = 1; j <= i; j++)
+				b[i][j] = b[i - 1][j - 1] + b[i - 1][j];
+		}
+		return b;
+	}
+
+	/**
+	 * Tarefa que preenche os subconjuntos de tamanho k com posições de
+	 * {@code inicio} até antes de {@code fim}, dividindo o intervalo ao meio
+	 * enquanto ele for maior que o {@link #LIMIAR_SEQUENCIAL}.
+	 *
+	 * @author Wallace Alves Esteves Manzano
+	 *
+	 */
+	private class Camada extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int k;
+		private final long inicio;
+		private final long fim;
+
+		private Camada(int k, long inicio, long fim) {
+			this.k = k;
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+
+		@Override
+		protected void compute() {
+			if (fim - inicio > LIMIAR_SEQUENCIAL) {
+				long meio = (inicio + fim) >>> 1;
+				invokeAll(new Camada(k, inicio, meio), new Camada(k, meio, fim));
+				return;
+			}
+			int s = subconjunto(k, inicio);
+			for (long p = inicio; p < fim; p++) {
+				calcular(s, k, p);
+				// próximo subconjunto com a mesma quantidade de bits (Gosper)
+				int menor = s & -s;
+				int soma = s + menor;
+				s = soma | (((s ^ soma) >>> 2) / menor);
+			}
+		}
+	}
+}
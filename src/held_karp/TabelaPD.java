@@ -0,0 +1,71 @@
+package held_karp;
+
+/**
+ * Tabela da programação dinâmica de Held-Karp, um vetor de {@code double}
+ * indexado por {@code long} para comportar mais posições que um vetor Java.
+ * <p>
+ * Threads diferentes podem ler e escrever ao mesmo tempo em posições
+ * diferentes. A visibilidade das escritas entre threads é garantida pela
+ * sincronização de quem as coordena, como o término das tarefas de um
+ * {@link java.util.concurrent.ForkJoinPool}.
+ * </p>
+ * <p>
+ * A tabela é preenchida em camadas, uma para cada tamanho de subconjunto, e
+ * cada camada ocupa posições contíguas. Implementações persistentes, como a
+ * {@link TabelaPDMapeada}, podem guardar as camadas já concluídas para retomar
+ * a execução depois de uma falha.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @see PCVHeldKarp
+ */
+public interface TabelaPD {
+
+	/**
+	 * Quantidade de posições da tabela.
+	 * 
+	 * @return tamanho da tabela.
+	 */
+	long tamanho();
+
+	/**
+	 * Lê o valor de uma posição.
+	 * 
+	 * @param indice
+	 *            posição, de 0 a {@link #tamanho()} - 1.
+	 * @return valor guardado.
+	 */
+	double ler(long indice);
+
+	/**
+	 * Escreve o valor de uma posição.
+	 * 
+	 * @param indice
+	 *            posição, de 0 a {@link #tamanho()} - 1.
+	 * @param valor
+	 *            valor a ser guardado.
+	 */
+	void escrever(long indice, double valor);
+
+	/**
+	 * Quantidade de camadas já preenchidas em uma execução anterior, guardadas
+	 * por tabelas persistentes para que a execução seja retomada.
+	 * 
+	 * @return quantidade de camadas preenchidas, 0 para tabelas não persistentes.
+	 * @see #concluirCamada(int)
+	 */
+	default int camadasConcluidas() {
+		return 0;
+	}
+
+	/**
+	 * Avisa que todas as posições de uma camada foram escritas. Tabelas
+	 * persistentes gravam as escritas e a quantidade de camadas preenchidas.
+	 * 
+	 * @param camada
+	 *            quantidade de camadas preenchidas, contando a que foi concluída.
+	 */
+	default void concluirCamada(int camada) {
+	}
+}
@@ -0,0 +1,60 @@
+package held_karp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * {@link TabelaPD} guardada fora do heap, em {@linkplain ByteBuffer#allocateDirect(int)
+ * buffers diretos}, para que tabelas de vários gigabytes não pesem na coleta
+ * de lixo. A memória total é limitada pela opção
+ * {@code -XX:MaxDirectMemorySize} da JVM, e é liberada quando a tabela deixa
+ * de ser usada e é coletada.
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ */
+public class TabelaPDDireta implements TabelaPD {
+	private static final int BITS_BLOCO = TabelaPDVetor.BITS_BLOCO;
+	private static final long MASCARA_BLOCO = (1L << BITS_BLOCO) - 1;
+
+	private final long tamanho;
+	private final DoubleBuffer[] blocos;
+
+	/**
+	 * Cria a tabela com todas as posições valendo 0.
+	 * 
+	 * @param tamanho
+	 *            quantidade de posições.
+	 */
+	public TabelaPDDireta(long tamanho) {
+		if (tamanho < 0)
+			throw new IllegalArgumentException("Tamanho negativo: " + tamanho);
+		this.tamanho = tamanho;
+		int quantidade = (int) ((tamanho + MASCARA_BLOCO) >>> BITS_BLOCO);
+		blocos = new DoubleBuffer[quantidade];
+		for (int b = 0; b < quantidade; b++) {
+			int posicoes = (int) Math.min(1L << BITS_BLOCO, tamanho - ((long) b << BITS_BLOCO));
+			blocos[b] = ByteBuffer.allocateDirect(posicoes * Double.BYTES).order(ByteOrder.nativeOrder())
+					.asDoubleBuffer();
+		}
+	}
+
+	@Override
+	public long tamanho() {
+		return tamanho;
+	}
+
+	// Os acessos absolutos não alteram a posição do buffer, então podem ser feitos
+	// por várias threads ao mesmo tempo
+
+	@Override
+	public double ler(long indice) {
+		return blocos[(int) (indice >>> BITS_BLOCO)].get((int) (indice & MASCARA_BLOCO));
+	}
+
+	@Override
+	public void escrever(long indice, double valor) {
+		blocos[(int) (indice >>> BITS_BLOCO)].put((int) (indice & MASCARA_BLOCO), valor);
+	}
+}
@@ -0,0 +1,164 @@
+package held_karp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link TabelaPD} guardada em um arquivo mapeado em memória, dividido em
+ * blocos mapeados por {@link FileChannel#map}. As páginas são carregadas e
+ * gravadas pelo sistema operacional, então a tabela pode ser maior que o heap
+ * e que a memória física, sem passar pela coleta de lixo. Como cada camada da
+ * programação dinâmica é escrita em sequência e só lê a camada anterior, os
+ * acessos ao disco também são sequenciais.
+ * <p>
+ * Após os valores, o arquivo tem um registro com o tamanho da tabela, a
+ * quantidade de camadas concluídas e a própria instância (a matriz de
+ * distâncias), que tem poucos KB. Ao concluir uma camada os blocos são gravados
+ * no disco antes do registro, então depois de uma falha a execução pode ser
+ * retomada a partir da última camada registrada, desde que o arquivo seja
+ * aberto com o mesmo tamanho e exatamente a mesma instância.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ */
+public class TabelaPDMapeada implements TabelaPD, Closeable {
+	private static final int BITS_BLOCO = TabelaPDVetor.BITS_BLOCO;
+	private static final long MASCARA_BLOCO = (1L << BITS_BLOCO) - 1;
+
+	// Registro no fim do arquivo: marca, tamanho, camadas, tamanho da instância e
+	// os valores da instância
+	private static final long MARCA = 0x50435648656c644cL;
+	private static final int CABECALHO_REGISTRO = 4 * Long.BYTES;
+
+	private final long tamanho;
+	private final double[] instancia;
+	private final RandomAccessFile arquivo;
+	private final MappedByteBuffer[] mapeamentos;
+	private final DoubleBuffer[] blocos;
+	private final MappedByteBuffer registro;
+	private int camadasConcluidas;
+
+	/**
+	 * Abre ou cria o arquivo da tabela. Caso o arquivo já exista com o mesmo
+	 * tamanho e a mesma instância, comparada valor a valor, as camadas concluídas
+	 * são mantidas, e caso contrário a tabela começa vazia.
+	 * 
+	 * @param arquivo
+	 *            arquivo da tabela.
+	 * @param tamanho
+	 *            quantidade de posições.
+	 * @param instancia
+	 *            valores que definem a instância, como a matriz de distâncias,
+	 *            guardados no arquivo para que a tabela de outra instância não seja
+	 *            retomada.
+	 * @throws IOException
+	 *             caso o arquivo não possa ser aberto ou mapeado.
+	 */
+	public TabelaPDMapeada(File arquivo, long tamanho, double[] instancia) throws IOException {
+		if (tamanho < 0)
+			throw new IllegalArgumentException("Tamanho negativo: " + tamanho);
+		this.tamanho = tamanho;
+		this.instancia = instancia.clone();
+		this.arquivo = new RandomAccessFile(arquivo, "rw");
+		try {
+			long bytes = tamanho * Double.BYTES;
+			int tamanhoRegistro = CABECALHO_REGISTRO + instancia.length * Double.BYTES;
+			boolean retomar = this.arquivo.length() == bytes + tamanhoRegistro;
+			if (!retomar)
+				this.arquivo.setLength(bytes + tamanhoRegistro);
+
+			FileChannel canal = this.arquivo.getChannel();
+			registro = canal.map(FileChannel.MapMode.READ_WRITE, bytes, tamanhoRegistro);
+			if (retomar && mesmaInstancia())
+				camadasConcluidas = (int) registro.getLong(2 * Long.BYTES);
+			else
+				gravarRegistro(0);
+
+			int quantidade = (int) ((tamanho + MASCARA_BLOCO) >>> BITS_BLOCO);
+			mapeamentos = new MappedByteBuffer[quantidade];
+			blocos = new DoubleBuffer[quantidade];
+			for (int b = 0; b < quantidade; b++) {
+				long inicio = (long) b << BITS_BLOCO;
+				long posicoes = Math.min(1L << BITS_BLOCO, tamanho - inicio);
+				mapeamentos[b] = canal.map(FileChannel.MapMode.READ_WRITE, inicio * Double.BYTES,
+						posicoes * Double.BYTES);
+				blocos[b] = mapeamentos[b].order(ByteOrder.nativeOrder()).asDoubleBuffer();
+			}
+		} catch (IOException | RuntimeException e) {
+			this.arquivo.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public long tamanho() {
+		return tamanho;
+	}
+
+	@Override
+	public double ler(long indice) {
+		return blocos[(int) (indice >>> BITS_BLOCO)].get((int) (indice & MASCARA_BLOCO));
+	}
+
+	@Override
+	public void escrever(long indice, double valor) {
+		blocos[(int) (indice >>> BITS_BLOCO)].put((int) (indice & MASCARA_BLOCO), valor);
+	}
+
+	@Override
+	public int camadasConcluidas() {
+		return camadasConcluidas;
+	}
+
+	/**
+	 * Grava no disco os blocos e depois o registro com a nova quantidade de
+	 * camadas concluídas.
+	 */
+	@Override
+	public void concluirCamada(int camada) {
+		for (MappedByteBuffer mapeamento : mapeamentos)
+			mapeamento.force();
+		gravarRegistro(camada);
+		camadasConcluidas = camada;
+	}
+
+	/**
+	 * Verifica se o registro do arquivo é desta tabela, comparando os bits de cada
+	 * valor da instância.
+	 */
+	private boolean mesmaInstancia() {
+		if (registro.getLong(0) != MARCA || registro.getLong(Long.BYTES) != tamanho
+				|| registro.getLong(3 * Long.BYTES) != instancia.length)
+			return false;
+		for (int i = 0; i < instancia.length; i++)
+			if (registro.getLong(CABECALHO_REGISTRO + i * Double.BYTES) != Double.doubleToLongBits(instancia[i]))
+				return false;
+		return true;
+	}
+
+	private void gravarRegistro(int camadas) {
+		registro.putLong(0, MARCA);
+		registro.putLong(Long.BYTES, tamanho);
+		registro.putLong(2 * Long.BYTES, camadas);
+		registro.putLong(3 * Long.BYTES, instancia.length);
+		for (int i = 0; i < instancia.length; i++)
+			registro.putLong(CABECALHO_REGISTRO + i * Double.BYTES, Double.doubleToLongBits(instancia[i]));
+		registro.force();
+	}
+
+	/**
+	 * Fecha o arquivo. Os blocos continuam mapeados até serem coletados, mas não
+	 * devem mais ser usados.
+	 */
+	@Override
+	public void close() throws IOException {
+		arquivo.close();
+	}
+}
@@ -0,0 +1,49 @@
+package held_karp;
+
+/**
+ * {@link TabelaPD} guardada no heap, dividida em blocos de vetores de
+ * {@code double} para superar o limite de tamanho de um único vetor.
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ */
+public class TabelaPDVetor implements TabelaPD {
+	// Posições de cada bloco, potência de 2 para que o bloco e a posição dentro
+	// dele sejam obtidos por deslocamento e máscara
+	static final int BITS_BLOCO = 26;
+	private static final long MASCARA_BLOCO = (1L << BITS_BLOCO) - 1;
+
+	private final long tamanho;
+	private final double[][] blocos;
+
+	/**
+	 * Cria a tabela com todas as posições valendo 0.
+	 * 
+	 * @param tamanho
+	 *            quantidade de posições.
+	 */
+	public TabelaPDVetor(long tamanho) {
+		if (tamanho < 0)
+			throw new IllegalArgumentException("Tamanho negativo: " + tamanho);
+		this.tamanho = tamanho;
+		int quantidade = (int) ((tamanho + MASCARA_BLOCO) >>> BITS_BLOCO);
+		blocos = new double[quantidade][];
+		for (int b = 0; b < quantidade; b++)
+			blocos[b] = new double[(int) Math.min(1L << BITS_BLOCO, tamanho - ((long) b << BITS_BLOCO))];
+	}
+
+	@Override
+	public long tamanho() {
+		return tamanho;
+	}
+
+	@Override
+	public double ler(long indice) {
+		return blocos[(int) (indice >>> BITS_BLOCO)][(int) (indice & MASCARA_BLOCO)];
+	}
+
+	@Override
+	public void escrever(long indice, double valor) {
+		blocos[(int) (indice >>> BITS_BLOCO)][(int) (indice & MASCARA_BLOCO)] = valor;
+	}
+}
@@ -0,0 +1,144 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Fila de baldes (Dial) para identificadores inteiros com chaves inteiras de 0
+ * a uma chave máxima conhecida, como os pesos das arestas de um grafo com pesos
+ * inteiros.
+ * <p>
+ * Cada chave possui um balde, que é uma lista duplamente encadeada guardada em
+ * vetores primitivos indexados pelo identificador. Inserir, diminuir a chave e
+ * verificar se um identificador está na fila custam O(1), sem comparações de
+ * {@code double}. A remoção do mínimo avança um cursor até o primeiro balde não
+ * vazio; o cursor só volta quando uma chave menor que ele é inserida, então em
+ * buscas monótonas o custo total das remoções é O(n + chave máxima).
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @see HeapIndexado
+ */
+public class FilaBaldes implements FilaIndexada {
+	private final int[] primeiro;
+	private final int[] proximo;
+	private final int[] anterior;
+	private final int[] chave;
+	private int cursor;
+	private int tamanho;
+
+	/**
+	 * Cria uma fila vazia.
+	 * 
+	 * @param capacidade
+	 *            quantidade de identificadores, de 0 a capacidade - 1.
+	 * @param chaveMaxima
+	 *            maior chave que pode ser inserida.
+	 */
+	public FilaBaldes(int capacidade, int chaveMaxima) {
+		if (capacidade < 0 || chaveMaxima < 0)
+			throw new IllegalArgumentException("Capacidade ou chave máxima negativa");
+		primeiro = new int[chaveMaxima + 1];
+		proximo = new int[capacidade];
+		anterior = new int[capacidade];
+		chave = new int[capacidade];
+		Arrays.fill(primeiro, -1);
+		Arrays.fill(chave, -1);
+	}
+
+	public int tamanho() {
+		return tamanho;
+	}
+
+	@Override
+	public boolean vazio() {
+		return tamanho == 0;
+	}
+
+	@Override
+	public boolean contem(int id) {
+		return chave[id] >= 0;
+	}
+
+	/**
+	 * Retorna a chave de um identificador que está na fila.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @return chave do identificador.
+	 */
+	public int chave(int id) {
+		return chave[id];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalArgumentException
+	 *             caso o identificador já esteja na fila ou a chave não seja um
+	 *             inteiro entre 0 e a chave máxima.
+	 */
+	@Override
+	public void inserir(int id, double chave) {
+		if (contem(id))
+			throw new IllegalArgumentException("Identificador já está na fila: " + id);
+		inserir(id, balde(chave));
+	}
+
+	/**
+	 * Adiciona um identificador que ainda não está na fila.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @param chave
+	 *            chave do identificador, de 0 até a chave máxima.
+	 */
+	public void inserir(int id, int chave) {
+		this.chave[id] = chave;
+		anterior[id] = -1;
+		proximo[id] = primeiro[chave];
+		if (primeiro[chave] >= 0)
+			anterior[primeiro[chave]] = id;
+		primeiro[chave] = id;
+		if (tamanho++ == 0 || chave < cursor)
+			cursor = chave;
+	}
+
+	@Override
+	public void diminuirChave(int id, double chave) {
+		int b = balde(chave);
+		desligar(id);
+		tamanho--;
+		inserir(id, b);
+	}
+
+	@Override
+	public int removerMinimo() {
+		if (tamanho == 0)
+			throw new NoSuchElementException();
+		while (primeiro[cursor] < 0)
+			cursor++;
+		int id = primeiro[cursor];
+		desligar(id);
+		chave[id] = -1;
+		tamanho--;
+		return id;
+	}
+
+	private void desligar(int id) {
+		if (anterior[id] >= 0)
+			proximo[anterior[id]] = proximo[id];
+		else
+			primeiro[chave[id]] = proximo[id];
+		if (proximo[id] >= 0)
+			anterior[proximo[id]] = anterior[id];
+	}
+
+	private int balde(double chave) {
+		int b = (int) chave;
+		if (b != chave || b < 0 || b >= primeiro.length)
+			throw new IllegalArgumentException("Chave fora dos baldes: " + chave);
+		return b;
+	}
+}
@@ -0,0 +1,55 @@
+package utils;
+
+/**
+ * Fila de prioridade de mínimo cujos elementos são identificadores inteiros não
+ * negativos, com diminuição de chave. É a interface usada pelo algoritmo de
+ * Prim, permitindo trocar o {@linkplain HeapIndexado heap binário} pela
+ * {@linkplain FilaBaldes fila de baldes} quando os pesos são inteiros.
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @see HeapIndexado
+ * @see FilaBaldes
+ */
+public interface FilaIndexada {
+
+	boolean vazio();
+
+	/**
+	 * Verifica se um identificador está na fila.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @return true se o identificador estiver na fila.
+	 */
+	boolean contem(int id);
+
+	/**
+	 * Adiciona um identificador que ainda não está na fila.
+	 * 
+	 * @param id
+	 *            identificador, não negativo.
+	 * @param chave
+	 *            chave do identificador.
+	 */
+	void inserir(int id, double chave);
+
+	/**
+	 * Diminui a chave de um identificador que está na fila.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @param chave
+	 *            nova chave, que não deve ser maior que a atual.
+	 */
+	void diminuirChave(int id, double chave);
+
+	/**
+	 * Remove o identificador de menor chave.
+	 * 
+	 * @return identificador removido.
+	 * @throws java.util.NoSuchElementException
+	 *             caso a fila esteja vazia.
+	 */
+	int removerMinimo();
+}
@@ -0,0 +1,273 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fila de prioridade de mínimo concorrente e relaxada (MultiQueue), com chaves
+ * {@code double} primitivas, para fronteiras de busca de melhor escolha
+ * compartilhadas entre várias threads.
+ * <p>
+ * Os elementos ficam distribuídos em várias filas menores, cada uma um heap
+ * binário em vetores primitivos protegido por sua própria trava. A inserção usa
+ * uma fila sorteada, e a remoção sorteia duas filas e remove da que tiver a
+ * menor chave mínima. As travas são obtidas por {@link ReentrantLock#tryLock()},
+ * sorteando outra fila caso a escolhida esteja ocupada, então as threads quase
+ * nunca esperam umas pelas outras.
+ * </p>
+ * <p>
+ * Em troca a ordem é relaxada: o elemento removido tem uma das menores chaves
+ * da fila, mas não necessariamente a menor, o que em uma busca de melhor escolha
+ * apenas faz alguns nós serem expandidos um pouco antes da hora. As operações em
+ * lote ({@link #inserirTodos(double[], Object[], int)} e
+ * {@link #removerVarios(int, List)}) usam uma única fila e uma única trava para
+ * todos os elementos.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @param <T>
+ *            Tipo dos elementos
+ * @see PriorityQueue
+ */
+public class FilaMultipla<T> {
+	/**
+	 * Quantidade de filas por thread. Com duas filas por thread a chance de duas
+	 * threads disputarem a mesma fila é pequena.
+	 */
+	private static final int FILAS_POR_THREAD = 2;
+	private final Fila[] filas;
+
+	/**
+	 * Cria uma fila vazia.
+	 * 
+	 * @param threads
+	 *            quantidade de threads que devem usar a fila ao mesmo tempo.
+	 * @throws IllegalArgumentException
+	 *             caso a quantidade seja menor que 1.
+	 */
+	public FilaMultipla(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Quantidade de threads menor que 1: " + threads);
+		filas = new Fila[FILAS_POR_THREAD * threads];
+		for (int i = 0; i < filas.length; i++)
+			filas[i] = new Fila();
+	}
+
+	/**
+	 * Retorna a quantidade de elementos. Com outras threads alterando a fila o
+	 * valor é apenas aproximado.
+	 * 
+	 * @return quantidade de elementos.
+	 */
+	public int tamanho() {
+		int t = 0;
+		for (Fila f : filas)
+			t += f.tamanho;
+		return t;
+	}
+
+	/**
+	 * Verifica se todas as filas estão vazias. Com outras threads alterando a fila
+	 * o resultado pode mudar logo em seguida.
+	 * 
+	 * @return true se a fila estiver vazia.
+	 */
+	public boolean vazio() {
+		for (Fila f : filas)
+			if (f.tamanho > 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Adiciona um elemento.
+	 * 
+	 * @param chave
+	 *            chave do elemento.
+	 * @param valor
+	 *            elemento.
+	 */
+	public void inserir(double chave, T valor) {
+		Fila f = travarQualquer();
+		try {
+			f.inserir(chave, valor);
+		} finally {
+			f.unlock();
+		}
+	}
+
+	/**
+	 * Adiciona vários elementos em uma mesma fila, obtendo uma única trava.
+	 * 
+	 * @param chaves
+	 *            chaves dos elementos.
+	 * @param valores
+	 *            elementos, na mesma ordem das chaves.
+	 * @param quantidade
+	 *            quantidade de elementos, a partir da posição 0.
+	 */
+	public void inserirTodos(double[] chaves, T[] valores, int quantidade) {
+		if (quantidade == 0)
+			return;
+		Fila f = travarQualquer();
+		try {
+			for (int i = 0; i < quantidade; i++)
+				f.inserir(chaves[i], valores[i]);
+		} finally {
+			f.unlock();
+		}
+	}
+
+	/**
+	 * Remove um elemento com uma das menores chaves.
+	 * 
+	 * @return elemento removido, ou {@code null} caso todas as filas estejam
+	 *         vazias.
+	 */
+	public T removerMinimo() {
+		Fila f = travarMenor();
+		if (f == null)
+			return null;
+		try {
+			return f.removerMinimo();
+		} finally {
+			f.unlock();
+		}
+	}
+
+	/**
+	 * Remove até {@code maximo} elementos de uma mesma fila, em ordem crescente de
+	 * chave dentro dela, obtendo uma única trava.
+	 * 
+	 * @param maximo
+	 *            quantidade máxima de elementos removidos.
+	 * @param destino
+	 *            lista que recebe os elementos removidos.
+	 * @return quantidade de elementos removidos, 0 caso todas as filas estejam
+	 *         vazias.
+	 */
+	public int removerVarios(int maximo, List<? super T> destino) {
+		Fila f = travarMenor();
+		if (f == null)
+			return 0;
+		try {
+			int r = 0;
+			while (r < maximo && f.tamanho > 0) {
+				destino.add(f.<T>removerMinimo());
+				r++;
+			}
+			return r;
+		} finally {
+			f.unlock();
+		}
+	}
+
+	/**
+	 * Trava uma fila sorteada que não esteja travada por outra thread.
+	 */
+	private Fila travarQualquer() {
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		while (true) {
+			Fila f = filas[r.nextInt(filas.length)];
+			if (f.tryLock())
+				return f;
+		}
+	}
+
+	/**
+	 * Trava, entre duas filas sorteadas, a de menor chave mínima. Se as duas
+	 * estiverem vazias, procura em todas as filas antes de concluir que não há
+	 * elementos.
+	 * 
+	 * @return fila travada e não vazia, ou {@code null} caso todas estejam vazias.
+	 */
+	private Fila travarMenor() {
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		for (int tentativa = 0; tentativa < 2 * filas.length; tentativa++) {
+			Fila a = filas[r.nextInt(filas.length)];
+			Fila b = filas[r.nextInt(filas.length)];
+			Fila f = b.minimo < a.minimo ? b : a;
+			if (f.tamanho == 0)
+				continue;
+			if (f.tryLock()) {
+				if (f.tamanho > 0)
+					return f;
+				f.unlock();
+			}
+		}
+		// as filas sorteadas estavam vazias ou ocupadas, então percorre todas
+		int inicio = r.nextInt(filas.length);
+		for (int i = 0; i < filas.length; i++) {
+			Fila f = filas[(inicio + i) % filas.length];
+			if (f.tamanho == 0)
+				continue;
+			f.lock();
+			if (f.tamanho > 0)
+				return f;
+			f.unlock();
+		}
+		return null;
+	}
+
+	/**
+	 * Heap binário de mínimo com sua trava. O tamanho e a menor chave são voláteis
+	 * para que as outras threads possam escolher a fila sem travá-la.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Fila extends ReentrantLock {
+		private double[] chaves = new double[16];
+		private Object[] valores = new Object[16];
+		private volatile int tamanho;
+		private volatile double minimo = Double.POSITIVE_INFINITY;
+
+		private void inserir(double chave, Object valor) {
+			int i = tamanho;
+			if (i == chaves.length) {
+				chaves = Arrays.copyOf(chaves, 2 * i);
+				valores = Arrays.copyOf(valores, 2 * i);
+			}
+			while (i > 0) {
+				int pai = (i - 1) >>> 1;
+				if (chaves[pai] <= chave)
+					break;
+				chaves[i] = chaves[pai];
+				valores[i] = valores[pai];
+				i = pai;
+			}
+			chaves[i] = chave;
+			valores[i] = valor;
+			tamanho++;
+			minimo = chaves[0];
+		}
+
+		@SuppressWarnings("unchecked")
+		private <E> E removerMinimo() {
+			E valor = (E) valores[0];
+			int t = tamanho - 1;
+			double chave = chaves[t];
+			Object ultimo = valores[t];
+			valores[t] = null;
+			int i = 0;
+			while (2 * i + 1 < t) {
+				int filho = 2 * i + 1;
+				if (filho + 1 < t && chaves[filho + 1] < chaves[filho])
+					filho++;
+				if (chave <= chaves[filho])
+					break;
+				chaves[i] = chaves[filho];
+				valores[i] = valores[filho];
+				i = filho;
+			}
+			if (t > 0) {
+				chaves[i] = chave;
+				valores[i] = ultimo;
+			}
+			tamanho = t;
+			minimo = t > 0 ? chaves[0] : Double.POSITIVE_INFINITY;
+			return valor;
+		}
+	}
+}
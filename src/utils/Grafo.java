@@ -3,7 +3,13 @@ package utils;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Grafo com vértice genéricos implementado por uma lista encadeada de
@@ -13,7 +19,14 @@ import java.util.LinkedHashMap;
  * </p>
  * <p>
  * Os vertices do grafo serão mapeados por um inteiro para manter o acesso aos
- * seus adjacentes com menor custo.
+ * seus adjacentes com menor custo. Esse mapeamento é mantido em uma tabela hash,
+ * fazendo com que as operações a partir de um vértice tenham custo constante.
+ * </p>
+ * <p>
+ * Opcionalmente o grafo pode ser criado no modo denso, onde além da lista de
+ * adjacência é mantida uma matriz de pesos n x n em um vetor contíguo, fazendo
+ * a consulta do peso de uma aresta em tempo constante. Indicado para grafos
+ * completos, como os do problema do caixeiro viajante.
  * </p>
  * 
  * @author Wallace Alves Esteves Manzano
@@ -27,26 +40,58 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	private static final long serialVersionUID = -7116859553985013010L;
 	private static final int DEFAULT_INITIAL_CAPACITY = 10;
 	private ArrayList<V> vertices;
+	private HashMap<V, Integer> indices;
 	private Adjacencia[] listaAdjacencia;
 	private boolean direcionado;
 	private int size;
+	/**
+	 * Matriz de pesos no modo denso, indexada por
+	 * {@code origem * listaAdjacencia.length + destino}, com {@code NaN} onde não
+	 * há aresta. É {@code null} quando o grafo não é denso.
+	 */
+	private double[] matriz;
+	/**
+	 * Última representação {@linkplain GrafoCSR CSR} gerada, descartada a cada
+	 * modificação do grafo.
+	 */
+	private transient GrafoCSR<V> congelado;
 
 	/**
 	 * Cria um grafo com a capacidade inicial de vertices, e ele sendo direcionado
-	 * ou não.
+	 * ou não e denso ou não.
 	 * 
 	 * @param capacidadeInicial
 	 *            Capacidade inicial de vertices.
 	 * @param direcionado
 	 *            {@code true} se o grafo for direcionado.
+	 * @param denso
+	 *            {@code true} se o grafo deve manter a matriz de pesos.
 	 */
-	public Grafo(int capacidadeInicial, boolean direcionado) {
+	public Grafo(int capacidadeInicial, boolean direcionado, boolean denso) {
 		if (capacidadeInicial < 1)
 			throw new IllegalArgumentException();
 		listaAdjacencia = new Adjacencia[capacidadeInicial];
 		vertices = new ArrayList<V>();
+		indices = new HashMap<V, Integer>();
 		size = 0;
 		this.direcionado = direcionado;
+		if (denso) {
+			matriz = new double[capacidadeInicial * capacidadeInicial];
+			Arrays.fill(matriz, Double.NaN);
+		}
+	}
+
+	/**
+	 * Cria um grafo com a capacidade inicial de vertices, e ele sendo direcionado
+	 * ou não.
+	 * 
+	 * @param capacidadeInicial
+	 *            Capacidade inicial de vertices.
+	 * @param direcionado
+	 *            {@code true} se o grafo for direcionado.
+	 */
+	public Grafo(int capacidadeInicial, boolean direcionado) {
+		this(capacidadeInicial, direcionado, false);
 	}
 
 	/**
@@ -75,12 +120,14 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @return {@code true} se o vértice for adicionado.
 	 */
 	public boolean addVertice(V v) {
-		if (vertices.contains(v))
+		if (indices.containsKey(v))
 			return false;
 		if (size == listaAdjacencia.length)
 			grow();
 		vertices.add(v);
+		indices.put(v, size);
 		size++;
+		congelado = null;
 		return true;
 	}
 
@@ -88,6 +135,18 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 		return vertices;
 	}
 
+	/**
+	 * Retorna o index de um vértice, em tempo constante.
+	 * 
+	 * @param v
+	 *            Vértice.
+	 * @return index do vértice, ou -1 caso ele não esteja no grafo.
+	 */
+	public int indiceDe(V v) {
+		Integer i = indices.get(v);
+		return i == null ? -1 : i;
+	}
+
 	/**
 	 * Insere uma aresta ponderada, entre o vértice de origem e destino e também uma
 	 * aresta de destino a origem.
@@ -101,17 +160,13 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @return true se a aresta for adicionada.
 	 */
 	public boolean addAresta(V origem, V destino, double peso) {
-		int indexO = vertices.indexOf(origem);
-		int indexD = vertices.indexOf(destino);
+		int indexO = indiceDe(origem);
+		int indexD = indiceDe(destino);
 		if (indexO < 0)
 			return false;
 		if (indexD < 0)
 			return false;
-		listaAdjacencia[indexO] = new Adjacencia(indexO, indexD, peso, listaAdjacencia[indexO]);
-		if (!direcionado && !origem.equals(destino)) {
-			listaAdjacencia[indexD] = new Adjacencia(indexD, indexO, peso, listaAdjacencia[indexD]);
-		}
-		return true;
+		return addAresta(indexO, indexD, peso);
 	}
 
 	/**
@@ -131,9 +186,14 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 			return false;
 		if (destino < 0)
 			return false;
+		congelado = null;
 		listaAdjacencia[origem] = new Adjacencia(origem, destino, peso, listaAdjacencia[origem]);
+		if (matriz != null)
+			matriz[origem * listaAdjacencia.length + destino] = peso;
 		if (!direcionado && origem != destino) {
 			listaAdjacencia[destino] = new Adjacencia(destino, origem, peso, listaAdjacencia[destino]);
+			if (matriz != null)
+				matriz[destino * listaAdjacencia.length + origem] = peso;
 		}
 		return true;
 	}
@@ -149,8 +209,8 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @return true se a aresta for removida.
 	 */
 	public boolean removeAresta(V origem, V destino) {
-		int indexO = vertices.indexOf(origem);
-		int indexD = vertices.indexOf(destino);
+		int indexO = indiceDe(origem);
+		int indexD = indiceDe(destino);
 		if (indexD < 0)
 			return false;
 		if (indexO < 0)
@@ -161,11 +221,13 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 			if (aux.vTo == indexD) {
 				if (ant == null) {
 					listaAdjacencia[indexO] = aux.prox;
+					atualizarMatriz(indexO, indexD);
 					if (!direcionado)
 						removeAresta2(destino, origem);
 					return true;
 				} else {
 					ant.prox = aux.prox;
+					atualizarMatriz(indexO, indexD);
 					if (!direcionado)
 						removeAresta2(destino, origem);
 					return true;
@@ -228,9 +290,10 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * 
 	 */
 	public Adjacencia primeiroAdjacente(V a) {
-		if (!vertices.contains(a))
+		int i = indiceDe(a);
+		if (i < 0)
 			return null;
-		return listaAdjacencia[vertices.indexOf(a)];
+		return listaAdjacencia[i];
 	}
 
 	/**
@@ -254,21 +317,80 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	}
 
 	public double getPesoAresta(V origem, V destino) {
-		int indexO = vertices.indexOf(origem);
-		int indexD = vertices.indexOf(destino);
+		int indexO = indiceDe(origem);
+		int indexD = indiceDe(destino);
 		if (indexD < 0)
 			return Double.MAX_VALUE;
 		if (indexO < 0)
 			return Double.MAX_VALUE;
-		Adjacencia aux = primeiroAdjacente(origem);
+		return getPesoAresta(indexO, indexD);
+	}
+
+	/**
+	 * Retorna o peso da aresta entre o vértice de origem e o de destino. No modo
+	 * denso a consulta é feita em tempo constante pela matriz de pesos.
+	 * 
+	 * @param origem
+	 *            Index do vértice de origem.
+	 * @param destino
+	 *            Index do vértice de destino.
+	 * @return peso da aresta, ou {@link Double#MAX_VALUE} caso ela não exista.
+	 */
+	public double getPesoAresta(int origem, int destino) {
+		if (matriz != null) {
+			double peso = matriz[origem * listaAdjacencia.length + destino];
+			return Double.isNaN(peso) ? Double.MAX_VALUE : peso;
+		}
+		Adjacencia aux = listaAdjacencia[origem];
 		while (aux != null) {
-			if (aux.vTo == indexD)
+			if (aux.vTo == destino)
 				return aux.peso;
 			aux = proximoAdjacente(aux);
 		}
 		return Double.MAX_VALUE;
 	}
 
+	/**
+	 * Gera uma representação imutável do grafo no formato {@linkplain GrafoCSR
+	 * CSR}, que pode ser percorrida sem alocação e compartilhada entre threads. A
+	 * representação é reaproveitada enquanto o grafo não for modificado.
+	 * 
+	 * @return {@link GrafoCSR} com os vértices e arestas atuais do grafo.
+	 */
+	public GrafoCSR<V> congelar() {
+		GrafoCSR<V> c = congelado;
+		if (c != null)
+			return c;
+		int[] inicio = new int[size + 1];
+		int m = 0;
+		for (int i = 0; i < size; i++) {
+			inicio[i] = m;
+			for (Adjacencia a = listaAdjacencia[i]; a != null; a = a.prox)
+				m++;
+		}
+		inicio[size] = m;
+		int[] origens = new int[m];
+		int[] destinos = new int[m];
+		double[] pesos = new double[m];
+		for (int i = 0, k = 0; i < size; i++) {
+			for (Adjacencia a = listaAdjacencia[i]; a != null; a = a.prox, k++) {
+				origens[k] = a.vFrom;
+				destinos[k] = a.vTo;
+				pesos[k] = a.peso;
+			}
+		}
+		double[] pesosDensos = null;
+		if (matriz != null) {
+			pesosDensos = new double[size * size];
+			for (int i = 0; i < size; i++)
+				System.arraycopy(matriz, i * listaAdjacencia.length, pesosDensos, i * size, size);
+		}
+		c = new GrafoCSR<V>(new ArrayList<V>(vertices), inicio, origens, destinos, pesos, pesosDensos,
+				direcionado);
+		congelado = c;
+		return c;
+	}
+
 	/**
 	 * Executa o algoritmo de Prim de arvores geradoras mínimas, retornando a arvore
 	 * geradora mínima referente a este grafo, representado por um grafo.
@@ -278,7 +400,7 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @return {@link Grafo} com a arvore geradora mínima.
 	 */
 	public Grafo<V> executarPrim(int raiz) {
-		Prim<V> a = new Prim<V>(this);
+		Prim<V> a = new Prim<V>(congelar(), null);
 		a.comecarPrim(raiz);
 		return a.buildGrafo();
 	}
@@ -292,17 +414,52 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @return {@link Grafo} com a arvore geradora mínima.
 	 */
 	public Grafo<V> executarKruskal(int raiz) {
-		Kruskal<V> a = new Kruskal<V>(this, 1);
+		Kruskal<V> a = new Kruskal<V>(congelar(), 1);
 		a.comecarKruskal(raiz);
 		return a.buildGrafo();
 	}
 
 	private Grafo<V> executarKruskal(int raiz, int k) {
-		Kruskal<V> a = new Kruskal<V>(this, k);
+		Kruskal<V> a = new Kruskal<V>(congelar(), k);
 		a.comecarKruskal(raiz);
 		return a.buildGrafo();
 	}
 
+	/**
+	 * Executa o algoritmo de Borůvka de arvores geradoras mínimas em paralelo, com
+	 * uma thread por processador, retornando a arvore geradora mínima referente a
+	 * este grafo, representado por um grafo. Caso o grafo seja desconexo é
+	 * retornada a floresta geradora mínima.
+	 * 
+	 * @return {@link Grafo} com a arvore geradora mínima.
+	 * @see #executarBoruvka(int)
+	 */
+	public Grafo<V> executarBoruvka() {
+		return executarBoruvka(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Executa o algoritmo de Borůvka de arvores geradoras mínimas, retornando a
+	 * arvore geradora mínima referente a este grafo, representado por um grafo.
+	 * Indicado para grafos grandes e esparsos, em que cada fase percorre as arestas
+	 * de todos os vértices dividindo-os entre as threads de um
+	 * {@link ForkJoinPool}. Caso o grafo seja desconexo é retornada a floresta
+	 * geradora mínima.
+	 * 
+	 * @param paralelismo
+	 *            quantidade de threads; com 1 a execução é sequencial.
+	 * @return {@link Grafo} com a arvore geradora mínima.
+	 * @throws IllegalArgumentException
+	 *             caso a quantidade seja menor que 1.
+	 */
+	public Grafo<V> executarBoruvka(int paralelismo) {
+		if (paralelismo < 1)
+			throw new IllegalArgumentException("Paralelismo menor que 1: " + paralelismo);
+		Boruvka<V> a = new Boruvka<V>(congelar());
+		a.comecarBoruvka(paralelismo);
+		return a.buildGrafo();
+	}
+
 	/**
 	 * Executa o algoritmo de geração de 1-Tree Mínima.
 	 * 
@@ -311,10 +468,44 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @return {@link Grafo} com a 1-Tree.
 	 */
 	public Grafo<V> executarOneTree(int raiz) {
-		OneTree<V> ot = new OneTree<>(this);
+		OneTree<V> ot = new OneTree<>(congelar(), null);
+		return ot.gerenate(raiz);
+	}
+
+	/**
+	 * Executa o algoritmo de geração de 1-Tree Mínima sobre um {@link GrafoCSR},
+	 * ignorando as arestas removidas.
+	 * 
+	 * @param g
+	 *            Grafo ao qual será executado o algoritmo.
+	 * @param removidas
+	 *            Posições das arestas removidas, ou {@code null}.
+	 * @param raiz
+	 *            da 1-Tree.
+	 * @return {@link Grafo} com a 1-Tree.
+	 */
+	static <V> Grafo<V> executarOneTree(GrafoCSR<V> g, BitSet removidas, int raiz) {
+		OneTree<V> ot = new OneTree<>(g, removidas);
 		return ot.gerenate(raiz);
 	}
 
+	/**
+	 * Calcula o custo da 1-Tree Mínima de um {@link GrafoCSR}, ignorando as arestas
+	 * removidas, sem construir o grafo da 1-Tree.
+	 * 
+	 * @param g
+	 *            Grafo ao qual será executado o algoritmo.
+	 * @param removidas
+	 *            Posições das arestas removidas, ou {@code null}.
+	 * @param raiz
+	 *            da 1-Tree.
+	 * @return soma dos pesos das arestas da 1-Tree.
+	 */
+	static <V> double custoOneTree(GrafoCSR<V> g, BitSet removidas, int raiz) {
+		OneTree<V> ot = new OneTree<>(g, removidas);
+		return ot.custo(raiz);
+	}
+
 	/**
 	 * Método de agrupamento de dados utilizando o algoritmo de
 	 * {@linkplain executarPrim Prim}
@@ -415,12 +606,14 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @return true se existir a aresta
 	 */
 	public boolean existeAresta(V origem, V destino) {
-		int indexO = vertices.indexOf(origem);
-		int indexD = vertices.indexOf(destino);
+		int indexO = indiceDe(origem);
+		int indexD = indiceDe(destino);
 		if (indexD < 0)
 			return false;
 		if (indexO < 0)
 			return false;
+		if (matriz != null)
+			return !Double.isNaN(matriz[indexO * listaAdjacencia.length + indexD]);
 		Adjacencia aux = primeiroAdjacente(origem);
 		while (aux != null) {
 			if (aux.vTo == indexD)
@@ -443,8 +636,12 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 
 	public void clear() {
 		vertices.clear();
+		indices.clear();
+		congelado = null;
 		for (int i = 0; i < size; i++)
 			listaAdjacencia[i] = null;
+		if (matriz != null)
+			Arrays.fill(matriz, Double.NaN);
 		size = 0;
 	}
 
@@ -458,10 +655,31 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 
 	public void setDirecionado(boolean direcionado) {
 		this.direcionado = direcionado;
+		congelado = null;
+	}
+
+	/**
+	 * Verifica se o grafo mantém a matriz de pesos do modo denso.
+	 * 
+	 * @return true se o grafo for denso.
+	 */
+	public boolean denso() {
+		return matriz != null;
+	}
+
+	/**
+	 * Verifica se todos os pesos das arestas são inteiros não negativos, usando a
+	 * {@linkplain #congelar() representação CSR} do grafo.
+	 * 
+	 * @return true se os pesos forem inteiros.
+	 * @see GrafoCSR#pesosInteiros()
+	 */
+	public boolean pesosInteiros() {
+		return congelar().pesosInteiros();
 	}
 
 	public Grafo<V> clone() {
-		Grafo<V> g = new Grafo<>(size, direcionado);
+		Grafo<V> g = new Grafo<>(size, direcionado, matriz != null);
 
 		for (V e : this.vertices)
 			g.addVertice(e);
@@ -492,8 +710,8 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	}
 
 	private boolean removeAresta2(V origem, V destino) {
-		int indexO = vertices.indexOf(origem);
-		int indexD = vertices.indexOf(destino);
+		int indexO = indiceDe(origem);
+		int indexD = indiceDe(destino);
 		if (indexD < 0)
 			return false;
 		if (indexO < 0)
@@ -504,11 +722,13 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 			if (aux.vTo == indexD) {
 				if (ant == null) {
 					listaAdjacencia[indexO] = aux.prox;
+					atualizarMatriz(indexO, indexD);
 					if (!direcionado)
 						removeAresta2(destino, origem);
 					return true;
 				} else {
 					ant.prox = aux.prox;
+					atualizarMatriz(indexO, indexD);
 					return true;
 				}
 			}
@@ -518,10 +738,55 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 		return false;
 	}
 
+	/**
+	 * Copia os vértices de outro grafo, mantendo os mesmos indexes. Deve ser usado
+	 * somente em um grafo vazio.
+	 * 
+	 * @param g
+	 *            Grafo de onde os vértices serão copiados.
+	 */
+	private void copiarVertices(GrafoCSR<V> g) {
+		for (V v : g.getVertices())
+			addVertice(v);
+	}
+
 	private void grow() {
 		int oldCapacity = listaAdjacencia.length;
 		int newCapacity = oldCapacity + ((oldCapacity < 64) ? (oldCapacity + 2) : (oldCapacity >> 1));
 		listaAdjacencia = Arrays.copyOf(listaAdjacencia, newCapacity);
+		if (matriz != null) {
+			double[] novaMatriz = new double[newCapacity * newCapacity];
+			Arrays.fill(novaMatriz, Double.NaN);
+			for (int i = 0; i < oldCapacity; i++)
+				System.arraycopy(matriz, i * oldCapacity, novaMatriz, i * newCapacity, oldCapacity);
+			matriz = novaMatriz;
+		}
+	}
+
+	/**
+	 * Atualiza a posição da matriz de pesos após a remoção de uma aresta, mantendo
+	 * o peso de uma eventual aresta paralela que ainda esteja na lista de
+	 * adjacência, e descarta a representação CSR.
+	 * 
+	 * @param origem
+	 *            Index do vértice de origem.
+	 * @param destino
+	 *            Index do vértice de destino.
+	 */
+	private void atualizarMatriz(int origem, int destino) {
+		congelado = null;
+		if (matriz == null)
+			return;
+		double peso = Double.NaN;
+		Adjacencia aux = listaAdjacencia[origem];
+		while (aux != null) {
+			if (aux.vTo == destino) {
+				peso = aux.peso;
+				break;
+			}
+			aux = aux.prox;
+		}
+		matriz[origem * listaAdjacencia.length + destino] = peso;
 	}
 
 	/**
@@ -626,7 +891,13 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 *            Tipo do vértice do {@link Grafo}
 	 */
 	private static class Prim<V> {
-		private Grafo<V> g;
+		/**
+		 * O grafo é considerado denso quando tem pelo menos n² / DENSIDADE_MINIMA
+		 * arestas.
+		 */
+		private static final int DENSIDADE_MINIMA = 4;
+		private GrafoCSR<V> g;
+		private BitSet removidas;
 		private int[] antecessor;
 		private double[] peso;
 
@@ -634,21 +905,29 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 		 * 
 		 * @param g
 		 *            Grafo ao qual será executado o algoritmo.
+		 * @param removidas
+		 *            Posições das arestas que devem ser ignoradas, ou {@code null}.
 		 */
-		private Prim(Grafo<V> g) {
+		private Prim(GrafoCSR<V> g, BitSet removidas) {
 			this.g = g;
-			antecessor = new int[g.size];
-			peso = new double[g.size];
+			this.removidas = removidas;
+			antecessor = new int[g.size()];
+			peso = new double[g.size()];
 		}
 
 		/**
-		 * Executa o algoritmo de Prim para arvore geradora mínima.
+		 * Executa o algoritmo de Prim para arvore geradora mínima. Em grafos densos é
+		 * usada a {@linkplain #comecarPrimDenso(int) versão sem fila}.
 		 * 
 		 * @param raiz
 		 *            Raiz da arvore
 		 */
 		private void comecarPrim(int raiz) {
-			int n = g.size;
+			int n = g.size();
+			if ((long) g.numeroArestas() * DENSIDADE_MINIMA >= (long) n * n) {
+				comecarPrimDenso(raiz);
+				return;
+			}
 			boolean[] s = new boolean[n];
 			for (int i = 0; i < n; i++) {
 				peso[i] = Double.MAX_VALUE;
@@ -656,35 +935,109 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 				antecessor[i] = -1;
 			}
 			peso[raiz] = 0;
-			PriorityQueue<Adjacencia> fila = new PriorityQueue<Adjacencia>(Adjacencia.getMinComparator());
-			Adjacencia adj = g.primeiroAdjacente(raiz);
+			// vértices fora da arvore já alcançados, pelo peso da menor aresta até ela
+			FilaIndexada fila = usarBaldes() ? new FilaBaldes(n, (int) g.pesoMaximo()) : new HeapIndexado(n);
+			fila.inserir(raiz, 0);
 
-			while (adj != null) {
-				int v = adj.vTo;
-				if (s[v] && (adj.peso < peso[v])) {
-					antecessor[v] = raiz;
-					fila.offer(adj);
-					peso[v] = adj.peso;
+			while (!fila.vazio()) {
+				int u = fila.removerMinimo();
+				s[u] = false;
+				for (int a = g.inicio(u); a < g.fim(u); a++) {
+					if (removidas != null && removidas.get(a))
+						continue;
+					int v = g.destino(a);
+					if (s[v] && (g.peso(a) < peso[v])) {
+						antecessor[v] = u;
+						peso[v] = g.peso(a);
+						if (fila.contem(v))
+							fila.diminuirChave(v, peso[v]);
+						else
+							fila.inserir(v, peso[v]);
+					}
 				}
-				adj = g.proximoAdjacente(adj);
 			}
-			s[raiz] = false;
 
-			while (!fila.isEmpty()) {
-				int u = fila.poll().vTo;
+		}
+
+		/**
+		 * Algoritmo de Prim em O(n² + m) sem fila de prioridade: a cada passo o
+		 * vértice fora da arvore de menor peso é encontrado percorrendo o vetor de
+		 * pesos, e os pesos dos seus vizinhos são relaxados. Com m próximo de n² é
+		 * melhor que o uso de uma fila, que gasta O(log n) a cada relaxamento.
+		 * <p>
+		 * Os vértices fora da arvore ficam no início do vetor {@code restantes}, e o
+		 * vértice escolhido troca de lugar com o último deles, então cada busca
+		 * percorre somente os vértices que faltam, sem desvios para os que já estão
+		 * na arvore.
+		 * </p>
+		 * 
+		 * @param raiz
+		 *            Raiz da arvore
+		 */
+		private void comecarPrimDenso(int raiz) {
+			int n = g.size();
+			boolean[] s = new boolean[n];
+			int[] restantes = new int[n];
+			for (int i = 0; i < n; i++) {
+				peso[i] = Double.MAX_VALUE;
+				s[i] = true;
+				antecessor[i] = -1;
+				restantes[i] = i;
+			}
+			peso[raiz] = 0;
+
+			for (int quantidade = n; quantidade > 0; quantidade--) {
+				int menor = -1;
+				double pesoMenor = Double.MAX_VALUE;
+				for (int i = 0; i < quantidade; i++) {
+					double p = peso[restantes[i]];
+					if (p < pesoMenor) {
+						pesoMenor = p;
+						menor = i;
+					}
+				}
+				// os vértices restantes não são alcançáveis
+				if (menor == -1)
+					break;
+				int u = restantes[menor];
+				restantes[menor] = restantes[quantidade - 1];
 				s[u] = false;
-				adj = g.primeiroAdjacente(u);
-				while (adj != null) {
-					int v = adj.vTo;
-					if (s[v] && (adj.peso < peso[v])) {
+				for (int a = g.inicio(u); a < g.fim(u); a++) {
+					if (removidas != null && removidas.get(a))
+						continue;
+					int v = g.destino(a);
+					if (s[v] && g.peso(a) < peso[v]) {
 						antecessor[v] = u;
-						fila.offer(adj);
-						peso[v] = adj.peso;
+						peso[v] = g.peso(a);
 					}
-					adj = g.proximoAdjacente(adj);
 				}
 			}
+		}
 
+		/**
+		 * Com pesos inteiros a fila de baldes evita as comparações do heap, desde que
+		 * percorrer os baldes não custe mais que percorrer as arestas.
+		 * 
+		 * @return true se a {@link FilaBaldes} deve ser usada.
+		 */
+		private boolean usarBaldes() {
+			return g.pesosInteiros() && g.pesoMaximo() <= g.numeroArestas();
+		}
+
+		/**
+		 * Verifica se a arvore contém a aresta entre os dois vértices, em qualquer
+		 * sentido, com o peso indicado.
+		 * 
+		 * @param u
+		 *            Index de um dos vértices.
+		 * @param v
+		 *            Index do outro vértice.
+		 * @param p
+		 *            Peso da aresta.
+		 * @return true se a aresta pertencer a arvore.
+		 */
+		private boolean pertence(int u, int v, double p) {
+			return (antecessor[v] == u && peso[v] == p) || (antecessor[u] == v && peso[u] == p);
 		}
 
 		/**
@@ -694,18 +1047,213 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 		 * @return Grafo contendo a arvore geradora mínima.
 		 */
 		private Grafo<V> buildGrafo() {
-			Grafo<V> a = new Grafo<V>(g.size, g.direcionado);
-			a.vertices = new ArrayList<V>(g.vertices);
-			a.size = g.size;
+			Grafo<V> a = new Grafo<V>(g.size(), g.direcionado());
+			a.copiarVertices(g);
 			for (int i = 0; i < peso.length; i++) {
 				if (antecessor[i] != -1)
-					a.addAresta(a.vertices.get(antecessor[i]), a.vertices.get(i), peso[i]);
+					a.addAresta(antecessor[i], i, peso[i]);
 			}
 
 			return a;
 		}
 	}
 
+	/**
+	 * Classe utilizada para o algoritmo de Borůvka.
+	 * <p>
+	 * A cada fase cada componente escolhe sua aresta de menor peso para outro
+	 * componente, e as arestas escolhidas são adicionadas à arvore, o que ao menos
+	 * divide pela metade a quantidade de componentes. As três etapas de cada fase
+	 * (identificar o componente de cada vértice, buscar a menor aresta e unir os
+	 * componentes) são divididas entre as threads por intervalos de vértices. A
+	 * menor aresta de cada componente é atualizada por compare-and-set e os
+	 * componentes ficam em um {@link UnionFindConcorrente}, então as threads não
+	 * usam travas.
+	 * </p>
+	 * <p>
+	 * Os empates de peso são desfeitos pelos indexes dos vértices da aresta, uma
+	 * ordem total que impede que arestas de mesmo peso formem um ciclo.
+	 * </p>
+	 * 
+	 * @author Wallace Alves Esteves Manzano
+	 *
+	 * @param <V>
+	 *            Tipo do vértice do {@link Grafo}
+	 */
+	private static class Boruvka<V> {
+		private static final int LIMIAR_SEQUENCIAL = 1 << 11;
+		private final GrafoCSR<V> g;
+		private final UnionFindConcorrente uf;
+		/**
+		 * Raiz do componente de cada vértice na fase atual.
+		 */
+		private final int[] componente;
+		/**
+		 * Menor aresta que sai de cada componente, indexada pela raiz, ou -1.
+		 */
+		private final AtomicIntegerArray menorAresta;
+		private final int[] aceitas;
+		private final AtomicInteger quantidadeAceitas = new AtomicInteger();
+
+		private Boruvka(GrafoCSR<V> g) {
+			this.g = g;
+			uf = new UnionFindConcorrente(g.size());
+			componente = new int[g.size()];
+			menorAresta = new AtomicIntegerArray(g.size());
+			aceitas = new int[Math.max(g.size() - 1, 0)];
+		}
+
+		/**
+		 * Executa as fases até que nenhum componente tenha aresta para outro.
+		 * 
+		 * @param paralelismo
+		 *            quantidade de threads.
+		 */
+		private void comecarBoruvka(int paralelismo) {
+			ForkJoinPool pool = paralelismo > 1 ? new ForkJoinPool(paralelismo) : null;
+			try {
+				int antes;
+				do {
+					antes = quantidadeAceitas.get();
+					executar(pool, Etapa.ROTULAR);
+					executar(pool, Etapa.BUSCAR);
+					executar(pool, Etapa.UNIR);
+				} while (quantidadeAceitas.get() > antes);
+			} finally {
+				if (pool != null)
+					pool.shutdown();
+			}
+		}
+
+		private void executar(ForkJoinPool pool, Etapa etapa) {
+			Intervalo tarefa = new Intervalo(etapa, 0, g.size());
+			if (pool == null)
+				tarefa.compute();
+			else
+				pool.invoke(tarefa);
+		}
+
+		/**
+		 * Busca a menor aresta entre o vértice e outro componente, e a oferece como
+		 * menor aresta do componente do vértice. Em grafos direcionados também são
+		 * consideradas as arestas que chegam no vértice.
+		 */
+		private void buscar(int v) {
+			int c = componente[v];
+			int menor = -1;
+			for (int a = g.inicio(v); a < g.fim(v); a++)
+				if (componente[g.destino(a)] != c && (menor == -1 || menor(a, menor)))
+					menor = a;
+			if (g.direcionado()) {
+				for (int i = g.inicioEntrada(v); i < g.fimEntrada(v); i++) {
+					int a = g.arestaEntrada(i);
+					if (componente[g.origem(a)] != c && (menor == -1 || menor(a, menor)))
+						menor = a;
+				}
+			}
+			if (menor == -1)
+				return;
+			while (true) {
+				int atual = menorAresta.get(c);
+				if (atual != -1 && !menor(menor, atual))
+					return;
+				if (menorAresta.compareAndSet(c, atual, menor))
+					return;
+			}
+		}
+
+		/**
+		 * Adiciona a menor aresta do componente, caso ele ainda não tenha sido unido
+		 * ao outro componente da aresta por ela mesma ou pela aresta escolhida por ele.
+		 */
+		private void unir(int c) {
+			if (componente[c] != c)
+				return;
+			int a = menorAresta.get(c);
+			if (a != -1 && uf.union(g.origem(a), g.destino(a)))
+				aceitas[quantidadeAceitas.getAndIncrement()] = a;
+		}
+
+		/**
+		 * Ordem total das arestas: pelo peso, depois pelo menor e pelo maior index dos
+		 * seus vértices e por fim pela posição da aresta.
+		 */
+		private boolean menor(int a, int b) {
+			double pa = g.peso(a), pb = g.peso(b);
+			if (pa != pb)
+				return pa < pb;
+			int ua = Math.min(g.origem(a), g.destino(a)), ub = Math.min(g.origem(b), g.destino(b));
+			if (ua != ub)
+				return ua < ub;
+			int va = Math.max(g.origem(a), g.destino(a)), vb = Math.max(g.origem(b), g.destino(b));
+			if (va != vb)
+				return va < vb;
+			return a < b;
+		}
+
+		/**
+		 * Constrói uma grafo com a arvore geradora mínima construída pelo método de
+		 * {@linkplain Boruvka#comecarBoruvka(int) Borůvka}.
+		 * 
+		 * @return Grafo contendo a arvore geradora mínima.
+		 */
+		private Grafo<V> buildGrafo() {
+			Grafo<V> a = new Grafo<V>(g.size(), false);
+			a.copiarVertices(g);
+
+			for (int i = 0; i < quantidadeAceitas.get(); i++) {
+				int e = aceitas[i];
+				a.addAresta(g.origem(e), g.destino(e), g.peso(e));
+			}
+
+			return a;
+		}
+
+		private enum Etapa {
+			ROTULAR, BUSCAR, UNIR
+		}
+
+		/**
+		 * Tarefa que executa uma etapa da fase para os vértices de {@code inicio} até
+		 * antes de {@code fim}, dividindo o intervalo ao meio enquanto ele for maior
+		 * que o {@link #LIMIAR_SEQUENCIAL}.
+		 */
+		private class Intervalo extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private final Etapa etapa;
+			private final int inicio;
+			private final int fim;
+
+			private Intervalo(Etapa etapa, int inicio, int fim) {
+				this.etapa = etapa;
+				this.inicio = inicio;
+				this.fim = fim;
+			}
+
+			@Override
+			protected void compute() {
+				if (fim - inicio > LIMIAR_SEQUENCIAL) {
+					int meio = (inicio + fim) >>> 1;
+					invokeAll(new Intervalo(etapa, inicio, meio), new Intervalo(etapa, meio, fim));
+					return;
+				}
+				for (int v = inicio; v < fim; v++) {
+					switch (etapa) {
+					case ROTULAR:
+						componente[v] = uf.find(v);
+						menorAresta.set(v, -1);
+						break;
+					case BUSCAR:
+						buscar(v);
+						break;
+					default:
+						unir(v);
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Classe utilizada para o algoritmo de Kruskal.
 	 * 
@@ -715,45 +1263,132 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 *            Tipo do vértice do {@link Grafo}
 	 */
 	private static class Kruskal<V> {
-		private Grafo<V> g;
-		private ArrayList<Adjacencia> aceitas;
+		private GrafoCSR<V> g;
+		private int[] aceitas;
+		private int quantidadeAceitas;
 		private int qtdC;
 
-		public Kruskal(Grafo<V> g, int quantidadeClusters) {
+		public Kruskal(GrafoCSR<V> g, int quantidadeClusters) {
 			this.g = g;
 			qtdC = quantidadeClusters;
-			aceitas = new ArrayList<Adjacencia>();
+			aceitas = new int[Math.max(g.size() - 1, 0)];
 		}
 
 		/**
-		 * Executa o algoritmo de Kruskal para arvore geradora mínima.
+		 * Executa o algoritmo de Kruskal para arvore geradora mínima. As arestas são
+		 * percorridas nos vetores primitivos gerados por {@link #arestasOrdenadas()},
+		 * e a execução termina ao restarem {@code qtdC} grupos.
 		 * 
 		 * @param raiz
 		 *            Raiz da arvore
 		 */
 		private void comecarKruskal(int raiz) {
-			PriorityQueue<Adjacencia> fila = new PriorityQueue<Adjacencia>(Adjacencia.getMinComparator());
-			UnionFind uf = new UnionFind(g.size);
-			for (int i = 0; i < g.size; i++) {
-				Adjacencia adj = g.primeiroAdjacente(i);
-				while (adj != null) {
-					fila.offer(adj);
-					adj = g.proximoAdjacente(adj);
+			int[] ordem = arestasOrdenadas();
+			UnionFind uf = new UnionFind(g.size());
+			for (int i = 0; i < ordem.length && uf.quantidadeGrupos() > qtdC; i++) {
+				int a = ordem[i];
+				if (uf.union(g.origem(a), g.destino(a)))
+					aceitas[quantidadeAceitas++] = a;
+			}
+		}
+
+		/**
+		 * Ordena as arestas pelo peso sem objetos nem comparadores. Em grafos não
+		 * direcionados cada aresta aparece nos dois sentidos, e somente o sentido do
+		 * menor para o maior index é mantido; laços nunca fazem parte da arvore e são
+		 * descartados.
+		 * <p>
+		 * Cada aresta vira um {@code long} com o peso arredondado para {@code float}
+		 * nos 32 bits mais significativos e a posição da aresta nos demais, e o vetor
+		 * é ordenado pelo {@link Arrays#parallelSort(long[])}. O arredondamento mantém
+		 * a ordem, então só as arestas com o mesmo {@code float} e pesos diferentes,
+		 * que não existem com pesos inteiros menores que 2<sup>24</sup>, são
+		 * reordenadas depois pelo peso exato. Com {@linkplain GrafoCSR#pesosInteiros()
+		 * pesos inteiros} pequenos é usada a {@linkplain #ordenarPorContagem()
+		 * ordenação por contagem}.
+		 * </p>
+		 * 
+		 * @return posições das arestas em ordem crescente de peso.
+		 */
+		private int[] arestasOrdenadas() {
+			if (g.pesosInteiros() && g.pesoMaximo() <= g.numeroArestas())
+				return ordenarPorContagem();
+			long[] chaves = new long[g.numeroArestas()];
+			int m = 0;
+			for (int a = 0; a < g.numeroArestas(); a++) {
+				if (considerar(a))
+					chaves[m++] = ((long) chaveOrdenavel((float) g.peso(a)) << 32) | a;
+			}
+			chaves = Arrays.copyOf(chaves, m);
+			Arrays.parallelSort(chaves);
+
+			int[] ordem = new int[m];
+			for (int i = 0; i < m; i++)
+				ordem[i] = (int) chaves[i];
+			for (int i = 0, fim; i < m; i = fim) {
+				fim = i + 1;
+				while (fim < m && (chaves[fim] >>> 32) == (chaves[i] >>> 32))
+					fim++;
+				if (fim - i > 1)
+					ordenarPorPeso(ordem, i, fim);
+			}
+			return ordem;
+		}
+
+		/**
+		 * Ordena as arestas de pesos inteiros contando quantas arestas há de cada
+		 * peso, em O(m + peso máximo).
+		 * 
+		 * @return posições das arestas em ordem crescente de peso.
+		 */
+		private int[] ordenarPorContagem() {
+			int[] inicio = new int[(int) g.pesoMaximo() + 2];
+			int m = 0;
+			for (int a = 0; a < g.numeroArestas(); a++) {
+				if (considerar(a)) {
+					inicio[(int) g.peso(a) + 1]++;
+					m++;
 				}
 			}
+			for (int p = 1; p < inicio.length; p++)
+				inicio[p] += inicio[p - 1];
+			int[] ordem = new int[m];
+			for (int a = 0; a < g.numeroArestas(); a++) {
+				if (considerar(a))
+					ordem[inicio[(int) g.peso(a)]++] = a;
+			}
+			return ordem;
+		}
 
-			while (!fila.isEmpty()) {
-				Adjacencia adj = fila.poll();
-				int cF = uf.find(adj.vFrom), cT = uf.find(adj.vTo);
+		private boolean considerar(int a) {
+			int o = g.origem(a), d = g.destino(a);
+			return o != d && (g.direcionado() || o < d);
+		}
 
-				if (uf.quantidadeGrupos() == qtdC)
-					return;
-				if (cF != cT) {
-					uf.union(cF, cT);
-					aceitas.add(adj);
+		/**
+		 * Ordenação por inserção das arestas do trecho pelo peso exato, que é linear
+		 * quando os pesos do trecho são iguais.
+		 */
+		private void ordenarPorPeso(int[] ordem, int inicio, int fim) {
+			for (int i = inicio + 1; i < fim; i++) {
+				int a = ordem[i];
+				double p = g.peso(a);
+				int j = i - 1;
+				while (j >= inicio && g.peso(ordem[j]) > p) {
+					ordem[j + 1] = ordem[j];
+					j--;
 				}
+				ordem[j + 1] = a;
 			}
+		}
 
+		/**
+		 * Converte um {@code float} em um {@code int} que, comparado como inteiro com
+		 * sinal, tem a mesma ordem dos {@code float}.
+		 */
+		private static int chaveOrdenavel(float peso) {
+			int bits = Float.floatToIntBits(peso);
+			return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
 		}
 
 		/**
@@ -763,12 +1398,13 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 		 * @return Grafo contendo a arvore geradora mínima.
 		 */
 		private Grafo<V> buildGrafo() {
-			Grafo<V> a = new Grafo<V>(g.size, false);
-			a.vertices = new ArrayList<V>(g.vertices);
-			a.size = g.size;
+			Grafo<V> a = new Grafo<V>(g.size(), false);
+			a.copiarVertices(g);
 
-			for (Adjacencia e : aceitas)
-				a.addAresta(e.vFrom, e.vTo, e.peso);
+			for (int i = 0; i < quantidadeAceitas; i++) {
+				int e = aceitas[i];
+				a.addAresta(g.origem(e), g.destino(e), g.peso(e));
+			}
 
 			return a;
 		}
@@ -782,38 +1418,67 @@ public class Grafo<V> implements java.io.Serializable, Cloneable {
 	 * @param <V>
 	 */
 	private static class OneTree<V> {
-		Grafo<V> g;
+		GrafoCSR<V> g;
+		BitSet removidas;
 
 		/**
 		 * 
 		 * @param g
 		 *            Grafo ao qual será executado o algoritmo.
+		 * @param removidas
+		 *            Posições das arestas que devem ser ignoradas, ou {@code null}.
 		 */
-		private OneTree(Grafo<V> g) {
+		private OneTree(GrafoCSR<V> g, BitSet removidas) {
 			this.g = g;
+			this.removidas = removidas;
 		}
 
 		private Grafo<V> gerenate(int root) {
-			Adjacencia a = null;
-			Grafo<V> r = g.executarPrim(0);
-			PriorityQueue<Adjacencia> pq = new PriorityQueue<>(Adjacencia.getMinComparator());
-
-			for (V e : g.getVertices()) {
-				a = g.primeiroAdjacente(e);
-				while (a != null) {
-					if (a.destino() == root && !r.existeAdjacencia(a)
-							&& !r.existeAdjacencia(new Adjacencia(a.destino(), a.origem(), a.peso(), null)))
-						pq.add(a);
-					a = g.proximoAdjacente(a);
-				}
+			Prim<V> p = new Prim<V>(g, removidas);
+			p.comecarPrim(0);
+			Grafo<V> r = p.buildGrafo();
+
+			int menor = arestaRaiz(p, root);
+			if (menor != -1) {
+				r.addAresta(g.origem(menor), root, g.peso(menor));
 			}
+			return r;
+		}
 
-			a = pq.poll();
-			if (a != null) {
+		private double custo(int root) {
+			Prim<V> p = new Prim<V>(g, removidas);
+			p.comecarPrim(0);
+			double custo = 0;
+			for (int i = 0; i < p.peso.length; i++)
+				if (p.antecessor[i] != -1)
+					custo += p.peso[i];
+
+			int menor = arestaRaiz(p, root);
+			if (menor != -1)
+				custo += g.peso(menor);
+			return custo;
+		}
 
-				r.addAresta(g.getVertices().get(a.vFrom), g.getVertices().get(a.vTo), a.peso);
+		/**
+		 * Encontra a aresta de menor peso que chega na raiz e não pertence a arvore
+		 * geradora mínima.
+		 * 
+		 * @param p
+		 *            Prim já executado.
+		 * @param root
+		 *            Raiz da 1-Tree.
+		 * @return posição da aresta, ou -1 caso não exista.
+		 */
+		private int arestaRaiz(Prim<V> p, int root) {
+			int menor = -1;
+			for (int i = g.inicioEntrada(root); i < g.fimEntrada(root); i++) {
+				int a = g.arestaEntrada(i);
+				if (removidas != null && removidas.get(a))
+					continue;
+				if (!p.pertence(g.origem(a), root, g.peso(a)) && (menor == -1 || g.peso(a) < g.peso(menor)))
+					menor = a;
 			}
-			return r;
+			return menor;
 		}
 
 	}
@@ -0,0 +1,287 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Representação imutável de um {@link Grafo} no formato compressed sparse row
+ * (CSR), obtida pelo método {@link Grafo#congelar()}.
+ * <p>
+ * As arestas de cada vértice ficam em posições contíguas dos vetores
+ * {@code destinos} e {@code pesos}, começando em {@link #inicio(int)} e
+ * terminando antes de {@link #fim(int)}, na mesma ordem da lista de adjacência
+ * do grafo de origem. Assim os adjacentes de um vértice são percorridos sem
+ * alocação de objetos:
+ * </p>
+ * 
+ * <pre>
+ * for (int a = g.inicio(v); a &lt; g.fim(v); a++) {
+ * 	int w = g.destino(a);
+ * 	double p = g.peso(a);
+ * }
+ * </pre>
+ * <p>
+ * As arestas que chegam em cada vértice também são indexadas, e podem ser
+ * percorridas da mesma forma por {@link #inicioEntrada(int)},
+ * {@link #fimEntrada(int)} e {@link #arestaEntrada(int)}.
+ * </p>
+ * <p>
+ * Por ser imutável pode ser compartilhada entre threads sem cópia.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @param <V>
+ *            Tipo do vértice
+ * @see Grafo
+ */
+public final class GrafoCSR<V> implements java.io.Serializable {
+	private static final long serialVersionUID = 2950837411239067452L;
+	private final List<V> vertices;
+	private final HashMap<V, Integer> indices;
+	private final int[] inicio;
+	private final int[] origens;
+	private final int[] destinos;
+	private final double[] pesos;
+	private final int[] inicioEntrada;
+	private final int[] arestasEntrada;
+	private final double[] matriz;
+	private final boolean direcionado;
+	private final boolean pesosInteiros;
+	private final double pesoMaximo;
+
+	/**
+	 * Cria a representação a partir dos vetores já preenchidos, que não devem ser
+	 * modificados depois.
+	 * 
+	 * @param vertices
+	 *            Vértices, na ordem de seus indexes.
+	 * @param inicio
+	 *            Posição da primeira aresta de cada vértice, com uma posição extra
+	 *            contendo o número de arestas.
+	 * @param origens
+	 *            Index do vértice de origem de cada aresta.
+	 * @param destinos
+	 *            Index do vértice de destino de cada aresta.
+	 * @param pesos
+	 *            Peso de cada aresta.
+	 * @param matriz
+	 *            Matriz de pesos n x n, ou {@code null} caso o grafo não seja
+	 *            denso.
+	 * @param direcionado
+	 *            {@code true} se o grafo for direcionado.
+	 */
+	GrafoCSR(List<V> vertices, int[] inicio, int[] origens, int[] destinos, double[] pesos, double[] matriz,
+			boolean direcionado) {
+		this.vertices = Collections.unmodifiableList(vertices);
+		this.indices = new HashMap<V, Integer>();
+		for (int i = 0; i < vertices.size(); i++)
+			indices.put(vertices.get(i), i);
+		this.inicio = inicio;
+		this.origens = origens;
+		this.destinos = destinos;
+		this.pesos = pesos;
+		this.matriz = matriz;
+		this.direcionado = direcionado;
+
+		boolean inteiros = true;
+		double maximo = 0;
+		for (double p : pesos) {
+			inteiros &= p >= 0 && p <= Integer.MAX_VALUE && p == Math.rint(p);
+			maximo = Math.max(maximo, p);
+		}
+		this.pesosInteiros = inteiros;
+		this.pesoMaximo = maximo;
+
+		// indexa as arestas pelo vértice de destino
+		int n = vertices.size();
+		inicioEntrada = new int[n + 1];
+		arestasEntrada = new int[destinos.length];
+		for (int a = 0; a < destinos.length; a++)
+			inicioEntrada[destinos[a] + 1]++;
+		for (int v = 0; v < n; v++)
+			inicioEntrada[v + 1] += inicioEntrada[v];
+		int[] proxima = Arrays.copyOf(inicioEntrada, n);
+		for (int a = 0; a < destinos.length; a++)
+			arestasEntrada[proxima[destinos[a]]++] = a;
+	}
+
+	public int size() {
+		return vertices.size();
+	}
+
+	public int numeroArestas() {
+		return destinos.length;
+	}
+
+	public List<V> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Retorna o index de um vértice.
+	 * 
+	 * @param v
+	 *            Vértice.
+	 * @return index do vértice, ou -1 caso ele não esteja no grafo.
+	 */
+	public int indiceDe(V v) {
+		Integer i = indices.get(v);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Retorna a posição da primeira aresta que sai do vértice.
+	 * 
+	 * @param v
+	 *            Index do vértice.
+	 * @return posição da primeira aresta.
+	 */
+	public int inicio(int v) {
+		return inicio[v];
+	}
+
+	/**
+	 * Retorna a posição seguinte a última aresta que sai do vértice.
+	 * 
+	 * @param v
+	 *            Index do vértice.
+	 * @return posição após a última aresta.
+	 */
+	public int fim(int v) {
+		return inicio[v + 1];
+	}
+
+	/**
+	 * Retorna a posição da primeira aresta que chega no vértice, no índice de
+	 * arestas de entrada.
+	 * 
+	 * @param v
+	 *            Index do vértice.
+	 * @return posição no índice de entrada.
+	 * @see #arestaEntrada(int)
+	 */
+	public int inicioEntrada(int v) {
+		return inicioEntrada[v];
+	}
+
+	/**
+	 * Retorna a posição seguinte a última aresta que chega no vértice, no índice de
+	 * arestas de entrada.
+	 * 
+	 * @param v
+	 *            Index do vértice.
+	 * @return posição após a última aresta de entrada.
+	 * @see #arestaEntrada(int)
+	 */
+	public int fimEntrada(int v) {
+		return inicioEntrada[v + 1];
+	}
+
+	/**
+	 * Retorna a aresta guardada em uma posição do índice de arestas de entrada.
+	 * 
+	 * @param i
+	 *            Posição no índice de entrada.
+	 * @return posição da aresta.
+	 */
+	public int arestaEntrada(int i) {
+		return arestasEntrada[i];
+	}
+
+	public int origem(int aresta) {
+		return origens[aresta];
+	}
+
+	public int destino(int aresta) {
+		return destinos[aresta];
+	}
+
+	public double peso(int aresta) {
+		return pesos[aresta];
+	}
+
+	/**
+	 * Retorna a posição da aresta entre o vértice de origem e o de destino.
+	 * 
+	 * @param origem
+	 *            Index do vértice de origem.
+	 * @param destino
+	 *            Index do vértice de destino.
+	 * @return posição da aresta, ou -1 caso ela não exista.
+	 */
+	public int indiceAresta(int origem, int destino) {
+		for (int a = inicio[origem]; a < inicio[origem + 1]; a++)
+			if (destinos[a] == destino)
+				return a;
+		return -1;
+	}
+
+	/**
+	 * Retorna o peso da aresta entre o vértice de origem e o de destino, em tempo
+	 * constante caso o grafo de origem seja denso.
+	 * 
+	 * @param origem
+	 *            Index do vértice de origem.
+	 * @param destino
+	 *            Index do vértice de destino.
+	 * @return peso da aresta, ou {@link Double#MAX_VALUE} caso ela não exista.
+	 */
+	public double getPesoAresta(int origem, int destino) {
+		if (matriz != null) {
+			double peso = matriz[origem * vertices.size() + destino];
+			return Double.isNaN(peso) ? Double.MAX_VALUE : peso;
+		}
+		int a = indiceAresta(origem, destino);
+		return a < 0 ? Double.MAX_VALUE : pesos[a];
+	}
+
+	/**
+	 * Cria a matriz de distâncias do grafo, com o menor peso entre as arestas de
+	 * cada par de vértices e {@link Double#MAX_VALUE} onde não há aresta.
+	 * 
+	 * @return matriz n x n, com a distância de i a j na posição {@code i * n + j}.
+	 */
+	public double[] matrizDistancias() {
+		int n = vertices.size();
+		double[] d = new double[n * n];
+		Arrays.fill(d, Double.MAX_VALUE);
+		for (int a = 0; a < destinos.length; a++) {
+			int i = origens[a] * n + destinos[a];
+			d[i] = Math.min(d[i], pesos[a]);
+		}
+		return d;
+	}
+
+	public boolean direcionado() {
+		return direcionado;
+	}
+
+	public boolean denso() {
+		return matriz != null;
+	}
+
+	/**
+	 * Indica se todos os pesos das arestas são inteiros não negativos que cabem em
+	 * um {@code int}, caso em que podem ser usadas filas de prioridade por baldes
+	 * ao invés de comparações de {@code double}.
+	 * 
+	 * @return true se os pesos forem inteiros.
+	 * @see FilaBaldes
+	 * @see HeapRadix
+	 */
+	public boolean pesosInteiros() {
+		return pesosInteiros;
+	}
+
+	/**
+	 * Retorna o maior peso entre as arestas.
+	 * 
+	 * @return maior peso, ou 0 caso não haja arestas.
+	 */
+	public double pesoMaximo() {
+		return pesoMaximo;
+	}
+}
@@ -0,0 +1,134 @@
+package utils;
+
+import java.util.BitSet;
+
+/**
+ * Grafo formado por um {@link GrafoCSR} imutável e um conjunto de arestas
+ * removidas, representado por um {@link BitSet} indexado pela posição das
+ * arestas no grafo base.
+ * <p>
+ * Um grafo reduzido pode gerar filhos que compartilham o conjunto de arestas
+ * removidas do pai até a primeira remoção (copy-on-write), então criar um
+ * filho custa O(1) e a primeira remoção custa a cópia de um bit por aresta, ao
+ * invés de reconstruir todas as {@linkplain Grafo.Adjacencia adjacências}
+ * como em {@link Grafo#clone()}.
+ * </p>
+ * <p>
+ * O pai não deve ter arestas removidas depois de gerar filhos.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @param <V>
+ *            Tipo do vértice
+ * @see GrafoCSR
+ */
+public class GrafoReduzido<V> {
+	private final GrafoCSR<V> base;
+	private BitSet removidas;
+	private boolean compartilhado;
+
+	/**
+	 * Cria um grafo reduzido sem nenhuma aresta removida.
+	 * 
+	 * @param base
+	 *            Grafo base.
+	 */
+	public GrafoReduzido(GrafoCSR<V> base) {
+		this.base = base;
+		this.removidas = new BitSet(base.numeroArestas());
+		this.compartilhado = false;
+	}
+
+	/**
+	 * Cria um grafo reduzido com as mesmas arestas removidas do pai.
+	 * 
+	 * @param pai
+	 *            Grafo reduzido pai.
+	 */
+	public GrafoReduzido(GrafoReduzido<V> pai) {
+		this.base = pai.base;
+		this.removidas = pai.removidas;
+		this.compartilhado = true;
+	}
+
+	public GrafoCSR<V> base() {
+		return base;
+	}
+
+	public int size() {
+		return base.size();
+	}
+
+	/**
+	 * Verifica se uma aresta do grafo base não foi removida.
+	 * 
+	 * @param aresta
+	 *            Posição da aresta no grafo base.
+	 * @return true se a aresta não foi removida.
+	 */
+	public boolean ativa(int aresta) {
+		return !removidas.get(aresta);
+	}
+
+	/**
+	 * Remove uma aresta do grafo.
+	 * 
+	 * @param aresta
+	 *            Posição da aresta no grafo base.
+	 * @return true se a aresta for removida.
+	 */
+	public boolean removeAresta(int aresta) {
+		if (removidas.get(aresta))
+			return false;
+		if (compartilhado) {
+			removidas = (BitSet) removidas.clone();
+			compartilhado = false;
+		}
+		removidas.set(aresta);
+		return true;
+	}
+
+	/**
+	 * Executa o algoritmo de geração de 1-Tree Mínima.
+	 * 
+	 * @param raiz
+	 *            da 1-Tree.
+	 * @return {@link Grafo} com a 1-Tree.
+	 */
+	public Grafo<V> executarOneTree(int raiz) {
+		return Grafo.executarOneTree(base, removidas, raiz);
+	}
+
+	/**
+	 * Calcula o custo da 1-Tree Mínima, sem construir o grafo da 1-Tree.
+	 * 
+	 * @param raiz
+	 *            da 1-Tree.
+	 * @return soma dos pesos das arestas da 1-Tree.
+	 */
+	public double custoOneTree(int raiz) {
+		return Grafo.custoOneTree(base, removidas, raiz);
+	}
+
+	/**
+	 * Constrói um {@link Grafo} com as arestas que não foram removidas.
+	 * 
+	 * @return Grafo equivalente.
+	 */
+	public Grafo<V> paraGrafo() {
+		Grafo<V> g = new Grafo<V>(Math.max(base.size(), 1), base.direcionado(), base.denso());
+		for (V v : base.getVertices())
+			g.addVertice(v);
+		for (int a = 0; a < base.numeroArestas(); a++)
+			if (!removidas.get(a))
+				g.addAresta(base.getVertices().get(base.origem(a)), base.getVertices().get(base.destino(a)),
+						base.peso(a));
+		return g;
+	}
+
+	@Override
+	public String toString() {
+		return paraGrafo().toString();
+	}
+}
@@ -0,0 +1,268 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Heap binário de mínimo indexado, cujos elementos são identificadores
+ * inteiros de 0 a capacidade - 1 com chaves {@code double} guardadas em
+ * vetores primitivos, sem alocação de objetos nem conversão para
+ * {@link Double}.
+ * <p>
+ * A posição de cada identificador no heap é guardada, então além da inserção e
+ * da remoção do mínimo em O(log n), a diminuição da chave e a remoção de um
+ * identificador qualquer também custam O(log n), e verificar se um
+ * identificador está no heap custa O(1). Assim algoritmos como o de Prim podem
+ * atualizar a chave de um vértice ao invés de inserir entradas repetidas.
+ * </p>
+ * <p>
+ * A capacidade aumenta automaticamente ao inserir um identificador maior que
+ * ela. A ordem entre chaves iguais pode ser definida por subclasses em
+ * {@link #menor(int, int)}.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @see HeapIndexadoLong
+ * @see FilaBaldes
+ */
+public class HeapIndexado implements FilaIndexada {
+	private int[] heap;
+	private int[] posicao;
+	private double[] chave;
+	private int tamanho;
+
+	/**
+	 * Cria um heap vazio.
+	 * 
+	 * @param capacidade
+	 *            quantidade inicial de identificadores.
+	 */
+	public HeapIndexado(int capacidade) {
+		if (capacidade < 0)
+			throw new IllegalArgumentException("Capacidade negativa: " + capacidade);
+		heap = new int[capacidade];
+		posicao = new int[capacidade];
+		chave = new double[capacidade];
+		Arrays.fill(posicao, -1);
+	}
+
+	public int tamanho() {
+		return tamanho;
+	}
+
+	@Override
+	public boolean vazio() {
+		return tamanho == 0;
+	}
+
+	/**
+	 * Verifica se um identificador está no heap.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @return true se o identificador estiver no heap.
+	 */
+	@Override
+	public boolean contem(int id) {
+		return id < posicao.length && posicao[id] >= 0;
+	}
+
+	/**
+	 * Retorna a chave de um identificador que está no heap.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @return chave do identificador.
+	 */
+	public double chave(int id) {
+		return chave[id];
+	}
+
+	/**
+	 * Retorna o identificador guardado em uma posição do heap, permitindo percorrer
+	 * todos os identificadores. A posição 0 é a do identificador de menor chave.
+	 * 
+	 * @param i
+	 *            posição, de 0 a {@link #tamanho()} - 1.
+	 * @return identificador na posição.
+	 */
+	public int id(int i) {
+		return heap[i];
+	}
+
+	/**
+	 * Retorna, sem remover, o identificador de menor chave.
+	 * 
+	 * @return identificador de menor chave.
+	 * @throws java.util.NoSuchElementException
+	 *             caso o heap esteja vazio.
+	 */
+	public int minimo() {
+		if (tamanho == 0)
+			throw new java.util.NoSuchElementException();
+		return heap[0];
+	}
+
+	/**
+	 * Retorna a menor chave do heap.
+	 * 
+	 * @return chave do {@linkplain #minimo() mínimo}.
+	 */
+	public double chaveMinima() {
+		return chave[minimo()];
+	}
+
+	/**
+	 * Adiciona um identificador que ainda não está no heap.
+	 * 
+	 * @param id
+	 *            identificador, não negativo.
+	 * @param chave
+	 *            chave do identificador.
+	 * @throws IllegalArgumentException
+	 *             caso o identificador já esteja no heap.
+	 */
+	@Override
+	public void inserir(int id, double chave) {
+		if (id >= posicao.length)
+			crescer(id + 1);
+		if (posicao[id] >= 0)
+			throw new IllegalArgumentException("Identificador já está no heap: " + id);
+		this.chave[id] = chave;
+		heap[tamanho] = id;
+		posicao[id] = tamanho;
+		subir(tamanho++);
+	}
+
+	/**
+	 * Remove o identificador de menor chave.
+	 * 
+	 * @return identificador removido.
+	 * @throws java.util.NoSuchElementException
+	 *             caso o heap esteja vazio.
+	 */
+	@Override
+	public int removerMinimo() {
+		int minimo = minimo();
+		removerPosicao(0);
+		return minimo;
+	}
+
+	/**
+	 * Remove um identificador do heap, caso esteja nele.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @return true se o identificador estava no heap.
+	 */
+	public boolean remover(int id) {
+		if (!contem(id))
+			return false;
+		removerPosicao(posicao[id]);
+		return true;
+	}
+
+	/**
+	 * Diminui a chave de um identificador que está no heap.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @param chave
+	 *            nova chave, que não deve ser maior que a atual.
+	 */
+	@Override
+	public void diminuirChave(int id, double chave) {
+		this.chave[id] = chave;
+		subir(posicao[id]);
+	}
+
+	/**
+	 * Altera a chave de um identificador que está no heap, para mais ou para
+	 * menos.
+	 * 
+	 * @param id
+	 *            identificador.
+	 * @param chave
+	 *            nova chave.
+	 */
+	public void alterarChave(int id, double chave) {
+		this.chave[id] = chave;
+		subir(posicao[id]);
+		descer(posicao[id]);
+	}
+
+	/**
+	 * Remove todos os identificadores, em tempo proporcional ao tamanho.
+	 */
+	public void limpar() {
+		for (int i = 0; i < tamanho; i++)
+			posicao[heap[i]] = -1;
+		tamanho = 0;
+	}
+
+	/**
+	 * Define a ordem entre dois identificadores do heap. Por padrão compara as
+	 * chaves.
+	 * 
+	 * @param a
+	 *            identificador.
+	 * @param b
+	 *            outro identificador.
+	 * @return true se {@code a} deve sair do heap antes de {@code b}.
+	 */
+	protected boolean menor(int a, int b) {
+		return chave[a] < chave[b];
+	}
+
+	private void removerPosicao(int i) {
+		int id = heap[i];
+		int ultimo = heap[--tamanho];
+		posicao[id] = -1;
+		if (i == tamanho)
+			return;
+		heap[i] = ultimo;
+		posicao[ultimo] = i;
+		subir(i);
+		descer(posicao[ultimo]);
+	}
+
+	private void subir(int i) {
+		int id = heap[i];
+		while (i > 0) {
+			int pai = (i - 1) >>> 1;
+			if (!menor(id, heap[pai]))
+				break;
+			colocar(i, heap[pai]);
+			i = pai;
+		}
+		colocar(i, id);
+	}
+
+	private void descer(int i) {
+		int id = heap[i];
+		while (2 * i + 1 < tamanho) {
+			int filho = 2 * i + 1;
+			if (filho + 1 < tamanho && menor(heap[filho + 1], heap[filho]))
+				filho++;
+			if (!menor(heap[filho], id))
+				break;
+			colocar(i, heap[filho]);
+			i = filho;
+		}
+		colocar(i, id);
+	}
+
+	private void colocar(int i, int id) {
+		heap[i] = id;
+		posicao[id] = i;
+	}
+
+	private void crescer(int minimo) {
+		int capacidade = Math.max(minimo, posicao.length + (posicao.length >> 1) + 2);
+		int antiga = posicao.length;
+		heap = Arrays.copyOf(heap, capacidade);
+		chave = Arrays.copyOf(chave, capacidade);
+		posicao = Arrays.copyOf(posicao, capacidade);
+		Arrays.fill(posicao, antiga, capacidade, -1);
+	}
+}
@@ -0,0 +1,135 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Heap radix monótono: fila de prioridade de mínimo para chaves inteiras não
+ * negativas em que nenhuma chave inserida é menor que a última removida, como
+ * os limites inferiores de uma busca de melhor escolha em que o limite de um
+ * filho nunca é menor que o do pai.
+ * <p>
+ * Os elementos ficam em 65 baldes, pelo bit mais significativo em que a chave
+ * difere da última chave removida. O balde 0 guarda as chaves iguais à última
+ * removida e é esvaziado na ordem inversa da inserção, então entre chaves
+ * iguais sai primeiro o elemento inserido por último. Quando ele fica vazio, o
+ * primeiro balde não vazio é redistribuído a partir da sua menor chave, e cada
+ * elemento só desce de balde, o que dá custo amortizado O(1) por inserção e
+ * O(log C) por remoção, sendo C a diferença entre a maior e a menor chave, sem
+ * comparações entre elementos.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @param <T>
+ *            Tipo dos elementos
+ */
+public class HeapRadix<T> {
+	private static final int BALDES = 65;
+	private final long[][] chaves = new long[BALDES][];
+	private final Object[][] valores = new Object[BALDES][];
+	private final int[] tamanhos = new int[BALDES];
+	private long ultima;
+	private int tamanho;
+
+	public HeapRadix() {
+		for (int b = 0; b < BALDES; b++) {
+			chaves[b] = new long[4];
+			valores[b] = new Object[4];
+		}
+	}
+
+	public int tamanho() {
+		return tamanho;
+	}
+
+	public boolean vazio() {
+		return tamanho == 0;
+	}
+
+	/**
+	 * Retorna a última chave removida, que é a menor chave aceita pela inserção.
+	 * 
+	 * @return última chave removida, ou 0 caso nenhuma tenha sido removida.
+	 */
+	public long ultimaChave() {
+		return ultima;
+	}
+
+	/**
+	 * Adiciona um elemento.
+	 * 
+	 * @param chave
+	 *            chave do elemento, não menor que a {@linkplain #ultimaChave()
+	 *            última removida}.
+	 * @param valor
+	 *            elemento.
+	 * @throws IllegalArgumentException
+	 *             caso a chave seja menor que a última removida.
+	 */
+	public void inserir(long chave, T valor) {
+		if (chave < ultima)
+			throw new IllegalArgumentException("Chave " + chave + " menor que a última removida " + ultima);
+		colocar(balde(chave), chave, valor);
+		tamanho++;
+	}
+
+	/**
+	 * Remove o elemento de menor chave.
+	 * 
+	 * @return elemento removido.
+	 * @throws NoSuchElementException
+	 *             caso o heap esteja vazio.
+	 */
+	@SuppressWarnings("unchecked")
+	public T removerMinimo() {
+		if (tamanho == 0)
+			throw new NoSuchElementException();
+		if (tamanhos[0] == 0)
+			redistribuir();
+		int i = --tamanhos[0];
+		T valor = (T) valores[0][i];
+		valores[0][i] = null;
+		tamanho--;
+		return valor;
+	}
+
+	/**
+	 * Esvazia o primeiro balde não vazio, passando a última chave para a menor
+	 * chave dele e recolocando seus elementos nos baldes de índice menor.
+	 */
+	private void redistribuir() {
+		int b = 1;
+		while (tamanhos[b] == 0)
+			b++;
+		long[] ch = chaves[b];
+		Object[] va = valores[b];
+		int t = tamanhos[b];
+		long minimo = ch[0];
+		for (int i = 1; i < t; i++)
+			if (ch[i] < minimo)
+				minimo = ch[i];
+		ultima = minimo;
+		// todas as chaves do balde b diferem da nova última chave em um bit menor
+		tamanhos[b] = 0;
+		for (int i = 0; i < t; i++) {
+			colocar(balde(ch[i]), ch[i], va[i]);
+			va[i] = null;
+		}
+	}
+
+	private int balde(long chave) {
+		return 64 - Long.numberOfLeadingZeros(chave ^ ultima);
+	}
+
+	private void colocar(int b, long chave, Object valor) {
+		int t = tamanhos[b];
+		if (t == chaves[b].length) {
+			chaves[b] = Arrays.copyOf(chaves[b], 2 * t);
+			valores[b] = Arrays.copyOf(valores[b], 2 * t);
+		}
+		chaves[b][t] = chave;
+		valores[b][t] = valor;
+		tamanhos[b] = t + 1;
+	}
+}
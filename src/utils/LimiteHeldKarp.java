@@ -0,0 +1,197 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Limite inferior de Held-Karp para o problema do caixeiro viajante, calculado
+ * por relaxação lagrangiana das restrições de grau com otimização por
+ * subgradiente.
+ * <p>
+ * Cada vértice recebe uma penalidade que é somada ao peso de todas as suas
+ * arestas. A arvore geradora mínima com os pesos modificados, descontada das
+ * penalidades, continua sendo um limite inferior para qualquer caminho que
+ * passe por todos os vértices, e a cada iteração as penalidades são ajustadas
+ * na direção dos vértices com grau diferente do esperado, aproximando a arvore
+ * de um caminho.
+ * </p>
+ * <p>
+ * O vetor de penalidades é lido como ponto de partida e recebe as melhores
+ * penalidades encontradas, permitindo reaproveitá-las em subproblemas
+ * parecidos, como os filhos de um nó do Branch and Bound.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ */
+public final class LimiteHeldKarp {
+	private static final double PASSO_INICIAL = 2.0;
+
+	private LimiteHeldKarp() {
+	}
+
+	/**
+	 * Calcula o limite inferior do custo de um caminho que começa em {@code s},
+	 * passa uma única vez por todos os vértices do subconjunto e termina em
+	 * {@code t}. Caso {@code s == t} o limite é o de um circuito, usando a 1-Tree.
+	 * <p>
+	 * As distâncias são tratadas como simétricas, usando o menor peso entre os dois
+	 * sentidos, o que mantém o limite válido também para grafos direcionados.
+	 * </p>
+	 * 
+	 * @param dist
+	 *            matriz de distâncias n x n, com {@link Double#MAX_VALUE} onde não
+	 *            há aresta.
+	 * @param n
+	 *            quantidade de vértices da matriz.
+	 * @param vertices
+	 *            vértices do subconjunto, incluindo {@code s} e {@code t}.
+	 * @param k
+	 *            quantidade de vértices do subconjunto.
+	 * @param s
+	 *            vértice inicial do caminho.
+	 * @param t
+	 *            vértice final do caminho.
+	 * @param penalidades
+	 *            penalidade de cada vértice, indexada pelo vértice; é atualizada com
+	 *            as melhores penalidades encontradas.
+	 * @param iteracoes
+	 *            quantidade máxima de iterações do subgradiente.
+	 * @param limiteSuperior
+	 *            custo de uma solução conhecida, usado no tamanho do passo e como
+	 *            critério de parada, ou {@link Double#MAX_VALUE}.
+	 * @return limite inferior do custo do caminho.
+	 */
+	public static double caminho(double[] dist, int n, int[] vertices, int k, int s, int t, double[] penalidades,
+			int iteracoes, double limiteSuperior) {
+		if (k <= 1)
+			return 0;
+		boolean circuito = s == t;
+		if (circuito && k == 2) {
+			int u = vertices[0] == t ? vertices[1] : vertices[0];
+			return 2 * distancia(dist, n, t, u);
+		}
+
+		double[] pi = new double[k];
+		double[] melhorPi = new double[k];
+		int[] alvo = new int[k];
+		int[] grau = new int[k];
+		double[] chave = new double[k];
+		int[] antecessor = new int[k];
+		boolean[] naArvore = new boolean[k];
+		int raiz = -1;
+		for (int i = 0; i < k; i++) {
+			pi[i] = penalidades[vertices[i]];
+			alvo[i] = !circuito && (vertices[i] == s || vertices[i] == t) ? 1 : 2;
+			if (vertices[i] == t)
+				raiz = i;
+		}
+
+		double melhor = -Double.MAX_VALUE;
+		double passo = PASSO_INICIAL;
+		for (int it = 0; it < Math.max(iteracoes, 1); it++) {
+			Arrays.fill(grau, 0);
+			double custo = arvore(dist, n, vertices, k, pi, circuito ? raiz : -1, chave, antecessor, naArvore, grau);
+			if (custo >= Double.MAX_VALUE)
+				return Double.MAX_VALUE;
+
+			if (circuito) {
+				// as duas arestas de menor peso que saem da raiz completam a 1-Tree
+				int m1 = -1, m2 = -1;
+				for (int i = 0; i < k; i++) {
+					if (i == raiz)
+						continue;
+					double p = pesoModificado(dist, n, vertices, pi, raiz, i);
+					if (m1 == -1 || p < pesoModificado(dist, n, vertices, pi, raiz, m1)) {
+						m2 = m1;
+						m1 = i;
+					} else if (m2 == -1 || p < pesoModificado(dist, n, vertices, pi, raiz, m2)) {
+						m2 = i;
+					}
+				}
+				custo += pesoModificado(dist, n, vertices, pi, raiz, m1)
+						+ pesoModificado(dist, n, vertices, pi, raiz, m2);
+				grau[raiz] += 2;
+				grau[m1]++;
+				grau[m2]++;
+				if (custo >= Double.MAX_VALUE)
+					return Double.MAX_VALUE;
+			}
+
+			double limite = custo;
+			int norma = 0;
+			for (int i = 0; i < k; i++) {
+				limite -= alvo[i] * pi[i];
+				norma += (grau[i] - alvo[i]) * (grau[i] - alvo[i]);
+			}
+
+			if (limite > melhor) {
+				melhor = limite;
+				System.arraycopy(pi, 0, melhorPi, 0, k);
+			} else {
+				passo /= 2;
+			}
+
+			// a arvore já é um caminho (ou circuito), então o limite é ótimo
+			if (norma == 0 || melhor >= limiteSuperior)
+				break;
+
+			double referencia = limiteSuperior < Double.MAX_VALUE ? limiteSuperior : 1.1 * Math.abs(limite) + 1;
+			double t1 = passo * (referencia - limite) / norma;
+			for (int i = 0; i < k; i++)
+				pi[i] += t1 * (grau[i] - alvo[i]);
+		}
+
+		for (int i = 0; i < k; i++)
+			penalidades[vertices[i]] = melhorPi[i];
+		return melhor;
+	}
+
+	/**
+	 * Arvore geradora mínima dos vértices do subconjunto com os pesos modificados
+	 * pelas penalidades, ignorando o vértice {@code excluido}.
+	 * 
+	 * @return custo da arvore com os pesos modificados.
+	 */
+	private static double arvore(double[] dist, int n, int[] vertices, int k, double[] pi, int excluido,
+			double[] chave, int[] antecessor, boolean[] naArvore, int[] grau) {
+		Arrays.fill(chave, 0, k, Double.MAX_VALUE);
+		Arrays.fill(antecessor, 0, k, -1);
+		Arrays.fill(naArvore, 0, k, false);
+		int inicio = excluido == 0 ? 1 : 0;
+		chave[inicio] = 0;
+		double custo = 0;
+		for (int passo = 0; passo < (excluido >= 0 ? k - 1 : k); passo++) {
+			int u = -1;
+			for (int i = 0; i < k; i++)
+				if (i != excluido && !naArvore[i] && (u == -1 || chave[i] < chave[u]))
+					u = i;
+			if (chave[u] >= Double.MAX_VALUE)
+				return Double.MAX_VALUE;
+			naArvore[u] = true;
+			custo += chave[u];
+			if (antecessor[u] != -1) {
+				grau[u]++;
+				grau[antecessor[u]]++;
+			}
+			for (int i = 0; i < k; i++) {
+				if (i != excluido && !naArvore[i]) {
+					double p = pesoModificado(dist, n, vertices, pi, u, i);
+					if (p < chave[i]) {
+						chave[i] = p;
+						antecessor[i] = u;
+					}
+				}
+			}
+		}
+		return custo;
+	}
+
+	private static double pesoModificado(double[] dist, int n, int[] vertices, double[] pi, int i, int j) {
+		double d = distancia(dist, n, vertices[i], vertices[j]);
+		return d >= Double.MAX_VALUE ? Double.MAX_VALUE : d + pi[i] + pi[j];
+	}
+
+	private static double distancia(double[] dist, int n, int u, int v) {
+		return Math.min(dist[u * n + v], dist[v * n + u]);
+	}
+}
@@ -1,11 +1,44 @@
 package utils;
 
+/**
+ * Conjuntos disjuntos (Union Find) com união pelo tamanho e busca iterativa,
+ * que não estoura a pilha em conjuntos grandes.
+ * <p>
+ * Quando criado como {@linkplain #UnionFind(int, boolean) reversível}, cada
+ * união é registrada e pode ser desfeita até uma {@linkplain #marcar() marca},
+ * permitindo reaproveitar a estrutura entre verificações ou voltar ao estado
+ * anterior em uma busca com retrocesso. Nesse modo a busca não comprime os
+ * caminhos, que continuam com altura O(log n) pela união pelo tamanho.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ */
 public class UnionFind {
 	private int id[];
 	private int sz[];
 	private int quantidadeGrupos;
+	/**
+	 * Raízes que foram ligadas a outra raiz, na ordem das uniões, ou {@code null}
+	 * caso a estrutura não seja reversível.
+	 */
+	private int historico[];
+	private int tamanhoHistorico;
 
 	public UnionFind(int size) {
+		this(size, false);
+	}
+
+	/**
+	 * Cria os conjuntos, cada elemento em seu próprio conjunto.
+	 * 
+	 * @param size
+	 *            quantidade de elementos.
+	 * @param reversivel
+	 *            true para registrar as uniões e permitir
+	 *            {@linkplain #desfazer(int) desfazê-las}.
+	 */
+	public UnionFind(int size, boolean reversivel) {
 		id = new int[size];
 		sz = new int[size];
 		this.quantidadeGrupos = size;
@@ -13,29 +46,89 @@ public class UnionFind {
 			id[i] = i;
 			sz[i] = 1;
 		}
+		if (reversivel)
+			historico = new int[Math.max(size - 1, 0)];
 	}
 
 	public int find(int x) {
-		if (x == id[x])
+		if (historico != null) {
+			while (x != id[x])
+				x = id[x];
 			return x;
-		return id[x] = find(id[x]);
+		}
+		// cada elemento do caminho passa a apontar para o avô
+		while (x != id[x]) {
+			id[x] = id[id[x]];
+			x = id[x];
+		}
+		return x;
 	}
 
-	public void union(int x, int y) {
+	/**
+	 * Une os conjuntos dos dois elementos, ligando a raiz do menor conjunto na do
+	 * maior.
+	 * 
+	 * @param x
+	 *            elemento.
+	 * @param y
+	 *            outro elemento.
+	 * @return true se os elementos estavam em conjuntos diferentes.
+	 */
+	public boolean union(int x, int y) {
 		int rx = find(x), ry = find(y);
 
 		if (rx == ry)
-			return;
-
-		quantidadeGrupos--;
-
-		sz[ry] = sz[rx] += sz[ry];
+			return false;
 
-		id[ry] = id[rx];
+		if (sz[rx] < sz[ry]) {
+			int t = rx;
+			rx = ry;
+			ry = t;
+		}
 
+		quantidadeGrupos--;
+		sz[rx] += sz[ry];
+		id[ry] = rx;
+		if (historico != null)
+			historico[tamanhoHistorico++] = ry;
+		return true;
 	}
 
 	public int quantidadeGrupos() {
 		return quantidadeGrupos;
 	}
+
+	/**
+	 * Retorna a marca do estado atual, para ser passada ao
+	 * {@link #desfazer(int)}.
+	 * 
+	 * @return quantidade de uniões feitas até agora.
+	 * @throws IllegalStateException
+	 *             caso a estrutura não seja reversível.
+	 */
+	public int marcar() {
+		if (historico == null)
+			throw new IllegalStateException("UnionFind não reversível");
+		return tamanhoHistorico;
+	}
+
+	/**
+	 * Desfaz, da mais recente para a mais antiga, as uniões feitas depois da
+	 * marca, em tempo proporcional à quantidade delas.
+	 * 
+	 * @param marca
+	 *            valor retornado por {@link #marcar()}.
+	 * @throws IllegalStateException
+	 *             caso a estrutura não seja reversível.
+	 */
+	public void desfazer(int marca) {
+		if (historico == null)
+			throw new IllegalStateException("UnionFind não reversível");
+		while (tamanhoHistorico > marca) {
+			int r = historico[--tamanhoHistorico];
+			sz[id[r]] -= sz[r];
+			id[r] = r;
+			quantidadeGrupos++;
+		}
+	}
 }
@@ -0,0 +1,117 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Conjuntos disjuntos (Union Find) sem travas, que podem ser usados por várias
+ * threads ao mesmo tempo, como em versões paralelas dos algoritmos de Kruskal e
+ * Borůvka.
+ * <p>
+ * Os pais ficam em um {@link AtomicIntegerArray}. A união liga por
+ * compare-and-set a raiz de menor índice na de maior índice, então os índices
+ * sempre crescem em direção à raiz e não se formam ciclos mesmo com uniões
+ * simultâneas. A busca faz a divisão pela metade dos caminhos (path halving)
+ * também por compare-and-set, e uma atualização que falha apenas deixa de
+ * encurtar o caminho. Nenhuma thread espera por outra: uma operação só é
+ * repetida quando outra thread alterou a mesma raiz, e nesse caso a outra
+ * thread progrediu.
+ * </p>
+ * 
+ * @author Wallace Alves Esteves Manzano
+ * 
+ * @see UnionFind
+ */
+public class UnionFindConcorrente {
+	private final AtomicIntegerArray pai;
+	private final AtomicInteger quantidadeGrupos;
+
+	/**
+	 * Cria os conjuntos, cada elemento em seu próprio conjunto.
+	 * 
+	 * @param size
+	 *            quantidade de elementos.
+	 */
+	public UnionFindConcorrente(int size) {
+		pai = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++)
+			pai.set(i, i);
+		quantidadeGrupos = new AtomicInteger(size);
+	}
+
+	public int size() {
+		return pai.length();
+	}
+
+	/**
+	 * Retorna a raiz do conjunto do elemento. Com uniões simultâneas a raiz pode
+	 * deixar de ser raiz logo em seguida.
+	 * 
+	 * @param x
+	 *            elemento.
+	 * @return raiz do conjunto.
+	 */
+	public int find(int x) {
+		while (true) {
+			int p = pai.get(x);
+			if (p == x)
+				return x;
+			int avo = pai.get(p);
+			if (p != avo)
+				pai.compareAndSet(x, p, avo);
+			x = avo;
+		}
+	}
+
+	/**
+	 * Une os conjuntos dos dois elementos.
+	 * 
+	 * @param x
+	 *            elemento.
+	 * @param y
+	 *            outro elemento.
+	 * @return true se esta chamada uniu os conjuntos, false se os elementos já
+	 *         estavam no mesmo conjunto.
+	 */
+	public boolean union(int x, int y) {
+		while (true) {
+			int rx = find(x), ry = find(y);
+			if (rx == ry)
+				return false;
+			if (rx > ry) {
+				int t = rx;
+				rx = ry;
+				ry = t;
+			}
+			// falha caso outra thread tenha ligado rx antes
+			if (pai.compareAndSet(rx, rx, ry)) {
+				quantidadeGrupos.decrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Verifica se os dois elementos estão no mesmo conjunto.
+	 * 
+	 * @param x
+	 *            elemento.
+	 * @param y
+	 *            outro elemento.
+	 * @return true se estiverem no mesmo conjunto no momento da verificação.
+	 */
+	public boolean mesmoGrupo(int x, int y) {
+		while (true) {
+			int rx = find(x), ry = find(y);
+			if (rx == ry)
+				return true;
+			// rx ainda é raiz, então em algum momento os conjuntos eram diferentes
+			if (pai.get(rx) == rx)
+				return false;
+		}
+	}
+
+	public int quantidadeGrupos() {
+		return quantidadeGrupos.get();
+	}
+}